@@ -0,0 +1,215 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier.benchmark;
+
+import eu.hlavki.lucene.analysis.identifier.IdentifierAnalyzerConfig;
+import eu.hlavki.lucene.analysis.identifier.IdentifierCodec;
+import eu.hlavki.lucene.analysis.identifier.IdentifierIndexAnalyzer;
+import eu.hlavki.lucene.analysis.identifier.IdentifierQueryAnalyzer;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.TermToBytesRefAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * Compares exact-term lookups on n-gram field indexed with default codec and with {@link IdentifierCodec} and
+ * docs-only postings. Index is kept unmerged with several segments, because bloom filter pays off for terms missing
+ * in a segment. Hit terms are identifiers of the corpus, miss terms are identifiers generated with different seed.
+ *
+ * <pre>
+ * java -cp benchmark/target/lucene-analyzers-benchmark-1.0-SNAPSHOT.jar \
+ *     eu.hlavki.lucene.analysis.identifier.benchmark.CodecBenchmark [--dir target/codec-benchmark] [--docs 200000]
+ *     [--segments 20] [--queries 10000] [--seed 42]
+ * </pre>
+ */
+public final class CodecBenchmark {
+
+    private static final String FIELD = "id";
+
+    private final Path dir;
+    private final List<String> corpus;
+    private final List<BytesRef> hits;
+    private final List<BytesRef> misses;
+    private final int segments;
+
+
+    public CodecBenchmark(Path dir, List<String> corpus, List<BytesRef> hits, List<BytesRef> misses, int segments) {
+        this.dir = dir;
+        this.corpus = corpus;
+        this.hits = hits;
+        this.misses = misses;
+        this.segments = segments;
+    }
+
+
+    /**
+     * Indexes corpus with both codecs and writes report.
+     *
+     * @param out report output
+     * @throws IOException if indexing or lookup fails
+     */
+    public void run(PrintStream out) throws IOException {
+        out.printf(Locale.ROOT, "%d docs in %d segments, %d hit and %d miss lookups%n", corpus.size(), segments,
+                hits.size(), misses.size());
+        out.printf(Locale.ROOT, "%-10s %12s %12s %12s%n", "codec", "size bytes", "hit ns", "miss ns");
+        FieldType positions = new FieldType(TextField.TYPE_NOT_STORED);
+        positions.freeze();
+        report(out, "default", null, positions);
+        report(out, "identifier", new IdentifierCodec(Set.of(FIELD)), IdentifierCodec.DOCS_ONLY_TYPE);
+    }
+
+
+    private void report(PrintStream out, String name, IdentifierCodec codec, FieldType type) throws IOException {
+        try (Directory directory = FSDirectory.open(dir.resolve(name));
+                IdentifierIndexAnalyzer analyzer = new IdentifierIndexAnalyzer()) {
+            IndexWriterConfig iwc = new IndexWriterConfig(analyzer)
+                    .setOpenMode(IndexWriterConfig.OpenMode.CREATE)
+                    .setMergePolicy(NoMergePolicy.INSTANCE)
+                    .setMaxBufferedDocs(Math.max(2, corpus.size() / segments))
+                    .setRAMBufferSizeMB(IndexWriterConfig.DISABLE_AUTO_FLUSH);
+            if (codec != null) {
+                iwc.setCodec(codec);
+            }
+            try (IndexWriter writer = new IndexWriter(directory, iwc)) {
+                Document doc = new Document();
+                Field field = new Field(FIELD, "", type);
+                doc.add(field);
+                for (String id : corpus) {
+                    field.setStringValue(id);
+                    writer.addDocument(doc);
+                }
+            }
+            long size = 0;
+            for (String file : directory.listAll()) {
+                size += directory.fileLength(file);
+            }
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                List<TermsEnum> termsEnums = new ArrayList<>();
+                for (LeafReaderContext leaf : reader.leaves()) {
+                    Terms terms = leaf.reader().terms(FIELD);
+                    if (terms != null) {
+                        termsEnums.add(terms.iterator());
+                    }
+                }
+                // warm up
+                lookup(termsEnums, hits);
+                lookup(termsEnums, misses);
+                out.printf(Locale.ROOT, "%-10s %12d %12d %12d%n", name, size, lookup(termsEnums, hits),
+                        lookup(termsEnums, misses));
+            }
+        }
+    }
+
+
+    /**
+     * Returns average nanoseconds of seeking term in all segments.
+     */
+    private static long lookup(List<TermsEnum> termsEnums, List<BytesRef> terms) throws IOException {
+        if (terms.isEmpty()) {
+            return 0;
+        }
+        int found = 0;
+        long start = System.nanoTime();
+        for (BytesRef term : terms) {
+            for (TermsEnum termsEnum : termsEnums) {
+                if (termsEnum.seekExact(term)) {
+                    found++;
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (found < 0) {
+            throw new AssertionError();
+        }
+        return elapsed / terms.size();
+    }
+
+
+    private static List<BytesRef> terms(Analyzer analyzer, List<String> identifiers) throws IOException {
+        List<BytesRef> result = new ArrayList<>(identifiers.size());
+        for (String id : identifiers) {
+            try (TokenStream stream = analyzer.tokenStream(FIELD, id)) {
+                TermToBytesRefAttribute termAtt = stream.getAttribute(TermToBytesRefAttribute.class);
+                stream.reset();
+                while (stream.incrementToken()) {
+                    result.add(BytesRef.deepCopyOf(termAtt.getBytesRef()));
+                }
+                stream.end();
+            }
+        }
+        return result;
+    }
+
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            params.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        int docs = Integer.parseInt(params.getOrDefault("docs", "200000"));
+        int queries = Integer.parseInt(params.getOrDefault("queries", "10000"));
+        long seed = Long.parseLong(params.getOrDefault("seed", "42"));
+        Map<IdentifierCorpusGenerator.Kind, Integer> mix = new EnumMap<>(IdentifierCorpusGenerator.Kind.class);
+        for (IdentifierCorpusGenerator.Kind kind : IdentifierCorpusGenerator.Kind.values()) {
+            mix.put(kind, 1);
+        }
+        IdentifierCorpusGenerator generator = new IdentifierCorpusGenerator(seed, mix, 2, 8,
+                IdentifierCorpusGenerator.Lengths.UNIFORM);
+        List<String> corpus = new ArrayList<>(docs);
+        for (int i = 0; i < docs; i++) {
+            corpus.add(generator.next());
+        }
+        IdentifierCorpusGenerator other = new IdentifierCorpusGenerator(seed + 1, mix, 2, 8,
+                IdentifierCorpusGenerator.Lengths.UNIFORM);
+        List<String> missing = new ArrayList<>(queries);
+        for (int i = 0; i < queries; i++) {
+            missing.add(other.next());
+        }
+        try (IdentifierQueryAnalyzer analyzer = new IdentifierQueryAnalyzer(IdentifierAnalyzerConfig.DEFAULT)) {
+            List<BytesRef> hits = terms(analyzer, corpus.subList(0, Math.min(queries, corpus.size())));
+            List<BytesRef> misses = terms(analyzer, missing);
+            Path dir = Paths.get(params.getOrDefault("dir", "target/codec-benchmark"));
+            Files.createDirectories(dir);
+            new CodecBenchmark(dir, corpus, hits, misses, Integer.parseInt(params.getOrDefault("segments", "20")))
+                    .run(System.out);
+        }
+    }
+}
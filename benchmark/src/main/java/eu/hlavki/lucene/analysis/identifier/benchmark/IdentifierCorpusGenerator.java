@@ -0,0 +1,196 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier.benchmark;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Seeded generator of synthetic identifiers: court file numbers, ECLIs, IP addresses and dotted paths. Number of
+ * segments of every identifier is drawn from configured range by length distribution, so the same seed and
+ * configuration always produce the same corpus.
+ */
+public final class IdentifierCorpusGenerator {
+
+    private static final String[] COURTS = {"ÚS", "Tdo", "Obo", "Cdo", "Sžo", "Ndc", "Co", "Ntc"};
+    private static final String[] ECLI_COURTS = {"USSR", "NSSR", "KSBA", "OSBA1", "KSKE", "OSZA"};
+    private static final String[] WORDS = {"org", "apache", "lucene", "analysis", "eu", "hlavki", "util", "index",
+        "search", "core", "common", "identifier", "codecs", "store", "document"};
+
+    public enum Kind {
+        COURT, ECLI, IP, DOTTED
+    }
+
+    public enum Lengths {
+        /**
+         * Every segment count of the range is equally likely
+         */
+        UNIFORM,
+        /**
+         * Short identifiers are more likely
+         */
+        SHORT,
+        /**
+         * Long identifiers are more likely
+         */
+        LONG
+    }
+
+    private final Random random;
+    private final Kind[] kinds;
+    private final int[] cumulativeWeights;
+    private final int minSegments;
+    private final int maxSegments;
+    private final Lengths lengths;
+
+
+    /**
+     * @param seed random seed
+     * @param mix relative weights of identifier kinds
+     * @param minSegments minimum number of segments
+     * @param maxSegments maximum number of segments
+     * @param lengths distribution of segment counts
+     */
+    public IdentifierCorpusGenerator(long seed, Map<Kind, Integer> mix, int minSegments, int maxSegments,
+            Lengths lengths) {
+        if (minSegments < 1 || maxSegments < minSegments) {
+            throw new IllegalArgumentException("Invalid segment range: " + minSegments + "-" + maxSegments);
+        }
+        this.random = new Random(seed);
+        this.kinds = mix.keySet().toArray(new Kind[0]);
+        this.cumulativeWeights = new int[kinds.length];
+        int total = 0;
+        for (int i = 0; i < kinds.length; i++) {
+            int weight = mix.get(kinds[i]);
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight of " + kinds[i]);
+            }
+            total += weight;
+            cumulativeWeights[i] = total;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("No identifier kind to generate");
+        }
+        this.minSegments = minSegments;
+        this.maxSegments = maxSegments;
+        this.lengths = lengths;
+    }
+
+
+    /**
+     * Returns next identifier.
+     */
+    public String next() {
+        int r = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int k = 0;
+        while (r >= cumulativeWeights[k]) {
+            k++;
+        }
+        int segments = segments();
+        switch (kinds[k]) {
+            case COURT:
+                return court(segments);
+            case ECLI:
+                return ecli(segments);
+            case IP:
+                return ip(segments);
+            default:
+                return dotted(segments);
+        }
+    }
+
+
+    private int segments() {
+        int range = maxSegments - minSegments + 1;
+        switch (lengths) {
+            case SHORT:
+                return minSegments + (int) (range * random.nextDouble() * random.nextDouble());
+            case LONG:
+                return maxSegments - (int) (range * random.nextDouble() * random.nextDouble());
+            default:
+                return minSegments + random.nextInt(range);
+        }
+    }
+
+
+    private int year() {
+        return 1993 + random.nextInt(30);
+    }
+
+
+    /**
+     * "5 Tdo 1234/2015" has 4 segments, longer ones get sub-numbers: "5 Tdo 1234/2015-12".
+     */
+    private String court(int segments) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(1 + random.nextInt(9)).append(' ').append(COURTS[random.nextInt(COURTS.length)]).append(' ')
+                .append(random.nextInt(5000)).append('/').append(year());
+        for (int i = 4; i < segments; i++) {
+            sb.append('-').append(1 + random.nextInt(99));
+        }
+        return sb.toString();
+    }
+
+
+    /**
+     * "ECLI:SK:USSR:2015:1.US.14.2015.1", decision number gets segments over 5.
+     */
+    private String ecli(int segments) {
+        StringBuilder sb = new StringBuilder("ECLI:SK:");
+        int year = year();
+        sb.append(ECLI_COURTS[random.nextInt(ECLI_COURTS.length)]).append(':').append(year).append(':');
+        int parts = Math.max(1, segments - 4);
+        for (int i = 0; i < parts; i++) {
+            if (i > 0) {
+                sb.append('.');
+            }
+            if (i % 2 == 1) {
+                sb.append(COURTS[random.nextInt(COURTS.length)].toUpperCase(Locale.ROOT));
+            } else {
+                sb.append(1 + random.nextInt(500));
+            }
+        }
+        return sb.toString();
+    }
+
+
+    /**
+     * IPv4 address up to 4 segments, IPv6 address with up to 8 groups above.
+     */
+    private String ip(int segments) {
+        StringBuilder sb = new StringBuilder();
+        if (segments <= 4) {
+            for (int i = 0; i < 4; i++) {
+                sb.append(i > 0 ? "." : "").append(random.nextInt(256));
+            }
+        } else {
+            for (int i = 0, n = Math.min(segments, 8); i < n; i++) {
+                sb.append(i > 0 ? ":" : "").append(Integer.toHexString(random.nextInt(0x10000)));
+            }
+        }
+        return sb.toString();
+    }
+
+
+    private String dotted(int segments) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < segments; i++) {
+            sb.append(i > 0 ? "." : "").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+}
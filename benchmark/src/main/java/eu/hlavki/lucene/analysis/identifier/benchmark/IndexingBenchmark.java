@@ -0,0 +1,266 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier.benchmark;
+
+import eu.hlavki.lucene.analysis.identifier.IdentifierAnalyzerConfig;
+import eu.hlavki.lucene.analysis.identifier.IdentifierIndexAnalyzer;
+import eu.hlavki.lucene.analysis.identifier.IdentifierQueryAnalyzer;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.QueryBuilder;
+
+/**
+ * End-to-end indexing benchmark. Generates synthetic corpus with {@link IdentifierCorpusGenerator}, indexes it
+ * with {@link IndexWriter} and reports indexing throughput, index size, number of terms, merge time and latency of
+ * exact and prefix lookups together with number of lookups that found a document. Field <code>ngram</code> is analyzed by {@link IdentifierIndexAnalyzer}, field
+ * <code>exact</code> by {@link IdentifierQueryAnalyzer}. Every field is indexed into its own directory, so reported
+ * sizes are exact per field. Exact lookup of identifier with number of segments out of n-gram sizes misses on
+ * <code>ngram</code> field, because whole identifier is not indexed there, so latencies are reported together with
+ * number of hits.
+ *
+ * <pre>
+ * mvn install -DskipTests &amp;&amp; mvn -f benchmark/pom.xml package
+ * java -jar benchmark/target/lucene-analyzers-benchmark-1.0-SNAPSHOT.jar [--dir target/benchmark] [--docs 100000]
+ *     [--seed 42] [--mix court=1,ecli=1,ip=1,dotted=1] [--segments 2-10] [--lengths uniform|short|long]
+ *     [--minGramSize 3] [--maxGramSize 8] [--includeIdentifier false] [--maxSkip 0] [--queries 1000]
+ * </pre>
+ */
+public final class IndexingBenchmark {
+
+    private static final String[] FIELDS = {"ngram", "exact"};
+
+    private final Path dir;
+    private final IdentifierAnalyzerConfig config;
+    private final List<String> corpus;
+    private final List<String> queries;
+
+
+    public IndexingBenchmark(Path dir, IdentifierAnalyzerConfig config, List<String> corpus, List<String> queries) {
+        this.dir = dir;
+        this.config = config;
+        this.corpus = corpus;
+        this.queries = queries;
+    }
+
+
+    /**
+     * Indexes corpus into every field and writes report.
+     *
+     * @param out report output
+     * @throws IOException if indexing or search fails
+     */
+    public void run(PrintStream out) throws IOException {
+        out.printf(Locale.ROOT, "%d docs, %d queries, minGramSize=%d, maxGramSize=%d, includeIdentifier=%b, maxSkip=%d%n",
+                corpus.size(), queries.size(), config.getMinGramSize(), config.getMaxGramSize(),
+                config.isIncludeIdentifier(), config.getMaxSkip());
+        out.printf(Locale.ROOT, "%-6s %10s %12s %10s %10s %16s %12s %16s %12s%n", "field", "docs/s", "size bytes",
+                "terms", "merge ms", "exact us p50/99", "exact hits", "prefix us p50/99", "prefix hits");
+        for (String field : FIELDS) {
+            try (IdentifierQueryAnalyzer queryAnalyzer = new IdentifierQueryAnalyzer(config);
+                    Analyzer indexAnalyzer = "ngram".equals(field) ? new IdentifierIndexAnalyzer(config)
+                    : new IdentifierQueryAnalyzer(config)) {
+                report(out, field, indexAnalyzer, queryAnalyzer);
+            }
+        }
+    }
+
+
+    private void report(PrintStream out, String field, Analyzer indexAnalyzer, Analyzer queryAnalyzer)
+            throws IOException {
+        Path fieldDir = dir.resolve(field);
+        try (Directory directory = FSDirectory.open(fieldDir)) {
+            IndexWriterConfig iwc = new IndexWriterConfig(indexAnalyzer)
+                    .setOpenMode(IndexWriterConfig.OpenMode.CREATE)
+                    .setRAMBufferSizeMB(64);
+            long indexNanos, mergeNanos;
+            try (IndexWriter writer = new IndexWriter(directory, iwc)) {
+                Document doc = new Document();
+                Field idField = new TextField(field, "", Field.Store.NO);
+                doc.add(idField);
+                long start = System.nanoTime();
+                for (String id : corpus) {
+                    idField.setStringValue(id);
+                    writer.addDocument(doc);
+                }
+                writer.commit();
+                indexNanos = System.nanoTime() - start;
+                start = System.nanoTime();
+                writer.forceMerge(1);
+                writer.commit();
+                mergeNanos = System.nanoTime() - start;
+            }
+            long size = 0;
+            for (String file : directory.listAll()) {
+                size += directory.fileLength(file);
+            }
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                long terms = 0;
+                for (LeafReaderContext leaf : reader.leaves()) {
+                    Terms fieldTerms = leaf.reader().terms(field);
+                    terms += fieldTerms == null ? 0 : fieldTerms.size();
+                }
+                IndexSearcher searcher = new IndexSearcher(reader);
+                QueryBuilder builder = new QueryBuilder(queryAnalyzer);
+                List<Query> exact = new ArrayList<>(queries.size());
+                List<Query> prefix = new ArrayList<>(queries.size());
+                for (String id : queries) {
+                    Query query = builder.createBooleanQuery(field, id);
+                    exact.add(query == null ? new MatchNoDocsQuery() : query);
+                    if (query instanceof TermQuery) {
+                        String term = ((TermQuery) query).getTerm().text();
+                        prefix.add(new PrefixQuery(new Term(field, term.substring(0, (term.length() + 1) / 2))));
+                    }
+                }
+                long[] exactMicros = latencies(searcher, exact);
+                long[] prefixMicros = latencies(searcher, prefix);
+                out.printf(Locale.ROOT, "%-6s %10.0f %12d %10d %10d %16s %12s %16s %12s%n", field,
+                        corpus.size() / (indexNanos / 1e9), size, terms, mergeNanos / 1_000_000,
+                        percentiles(exactMicros), hits(searcher, exact), percentiles(prefixMicros),
+                        hits(searcher, prefix));
+            }
+        }
+    }
+
+
+    /**
+     * Runs every query once to warm up, then measures it.
+     */
+    private static long[] latencies(IndexSearcher searcher, List<Query> queries) throws IOException {
+        for (Query query : queries) {
+            searcher.count(query);
+        }
+        long[] micros = new long[queries.size()];
+        for (int i = 0; i < micros.length; i++) {
+            long start = System.nanoTime();
+            searcher.count(queries.get(i));
+            micros[i] = (System.nanoTime() - start) / 1000;
+        }
+        Arrays.sort(micros);
+        return micros;
+    }
+
+
+    /**
+     * Returns number of queries matching at least one document out of all queries, so latencies of misses are not
+     * mistaken for lookups.
+     */
+    private static String hits(IndexSearcher searcher, List<Query> queries) throws IOException {
+        int hits = 0;
+        for (Query query : queries) {
+            if (searcher.count(query) > 0) {
+                hits++;
+            }
+        }
+        return hits + "/" + queries.size();
+    }
+
+
+    private static String percentiles(long[] sorted) {
+        if (sorted.length == 0) {
+            return "-";
+        }
+        return sorted[sorted.length / 2] + "/" + sorted[Math.min(sorted.length - 1, (int) (sorted.length * 0.99))];
+    }
+
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                usage();
+                return;
+            }
+            params.put(args[i].substring(2), args[i + 1]);
+        }
+        if (args.length % 2 != 0) {
+            usage();
+            return;
+        }
+        int docs = Integer.parseInt(params.getOrDefault("docs", "100000"));
+        long seed = Long.parseLong(params.getOrDefault("seed", "42"));
+        String[] segments = params.getOrDefault("segments", "2-10").split("-");
+        IdentifierCorpusGenerator generator = new IdentifierCorpusGenerator(seed,
+                mix(params.getOrDefault("mix", "court=1,ecli=1,ip=1,dotted=1")), Integer.parseInt(segments[0]),
+                Integer.parseInt(segments[segments.length - 1]),
+                IdentifierCorpusGenerator.Lengths.valueOf(params.getOrDefault("lengths", "uniform").toUpperCase(Locale.ROOT)));
+        IdentifierAnalyzerConfig config = IdentifierAnalyzerConfig.builder()
+                .minGramSize(Integer.parseInt(params.getOrDefault("minGramSize", "3")))
+                .maxGramSize(Integer.parseInt(params.getOrDefault("maxGramSize", "8")))
+                .includeIdentifier(Boolean.parseBoolean(params.getOrDefault("includeIdentifier", "false")))
+                .skipGrams(Integer.parseInt(params.getOrDefault("maxSkip", "0")), 64)
+                .build();
+
+        List<String> corpus = new ArrayList<>(docs);
+        for (int i = 0; i < docs; i++) {
+            corpus.add(generator.next());
+        }
+        Random random = new Random(seed);
+        int queryCount = Integer.parseInt(params.getOrDefault("queries", "1000"));
+        List<String> queries = new ArrayList<>(queryCount);
+        for (int i = 0; i < queryCount && !corpus.isEmpty(); i++) {
+            queries.add(corpus.get(random.nextInt(corpus.size())));
+        }
+        Path dir = Paths.get(params.getOrDefault("dir", "target/benchmark"));
+        Files.createDirectories(dir);
+        new IndexingBenchmark(dir, config, corpus, queries).run(System.out);
+    }
+
+
+    private static Map<IdentifierCorpusGenerator.Kind, Integer> mix(String value) {
+        Map<IdentifierCorpusGenerator.Kind, Integer> result = new EnumMap<>(IdentifierCorpusGenerator.Kind.class);
+        for (String part : value.split(",")) {
+            String[] kv = part.split("=");
+            result.put(IdentifierCorpusGenerator.Kind.valueOf(kv[0].trim().toUpperCase(Locale.ROOT)),
+                    Integer.parseInt(kv[1].trim()));
+        }
+        return result;
+    }
+
+
+    private static void usage() {
+        System.err.println("Usage: IndexingBenchmark [--dir target/benchmark] [--docs 100000] [--seed 42]"
+                + " [--mix court=1,ecli=1,ip=1,dotted=1] [--segments 2-10] [--lengths uniform|short|long]"
+                + " [--minGramSize 3] [--maxGramSize 8] [--includeIdentifier false] [--maxSkip 0] [--queries 1000]");
+    }
+}
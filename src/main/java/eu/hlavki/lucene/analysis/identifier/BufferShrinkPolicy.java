@@ -0,0 +1,101 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Policy of releasing buffers of reused analysis chains. Filters of this package keep their
+ * buffers between inputs, so one huge input would inflate them for the lifetime of the chain. On reset, buffer
+ * which grew over the limit of the policy is released and counted. Policy may be shared by many chains, see
+ * {@link #getReleaseCount()}.
+ *
+ * <pre>
+ * BufferShrinkPolicy policy = new BufferShrinkPolicy(4096, 256);
+ * filter.setBufferShrinkPolicy(policy);
+ * </pre>
+ */
+public final class BufferShrinkPolicy {
+
+    /**
+     * Policy which never releases buffers
+     */
+    public static final BufferShrinkPolicy NEVER = new BufferShrinkPolicy(Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+    private final int maxRetainedChars;
+    private final int maxRetainedTokens;
+    private final LongAdder releases = new LongAdder();
+
+
+    /**
+     * Creates policy with given limits.
+     *
+     * @param maxRetainedChars maximum length of char buffer kept after reset
+     * @param maxRetainedTokens maximum number of buffered tokens kept after reset
+     * @throws IllegalArgumentException if any limit is less than one
+     */
+    public BufferShrinkPolicy(int maxRetainedChars, int maxRetainedTokens) {
+        if (maxRetainedChars < 1) {
+            throw new IllegalArgumentException("maxRetainedChars must be greater than zero");
+        } else if (maxRetainedTokens < 1) {
+            throw new IllegalArgumentException("maxRetainedTokens must be greater than zero");
+        }
+        this.maxRetainedChars = maxRetainedChars;
+        this.maxRetainedTokens = maxRetainedTokens;
+    }
+
+
+    public int getMaxRetainedChars() {
+        return maxRetainedChars;
+    }
+
+
+    public int getMaxRetainedTokens() {
+        return maxRetainedTokens;
+    }
+
+
+    /**
+     * Returns number of released buffers.
+     */
+    public long getReleaseCount() {
+        return releases.sum();
+    }
+
+
+    /**
+     * Returns true if char buffer of given length should be released, and counts it.
+     */
+    boolean releaseChars(int length) {
+        return release(length > maxRetainedChars);
+    }
+
+
+    /**
+     * Returns true if buffer of given number of tokens should be released, and counts it.
+     */
+    boolean releaseTokens(int count) {
+        return release(count > maxRetainedTokens);
+    }
+
+
+    private boolean release(boolean oversized) {
+        if (oversized) {
+            releases.increment();
+        }
+        return oversized;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import java.io.Reader;
+import java.nio.CharBuffer;
+import org.apache.lucene.util.ArrayUtil;
+
+/**
+ * Reader over in-memory chars. It works as a plain {@link Reader} with any tokenizer, but
+ * {@link PunctationTokenizer} recognizes it and scans its chars in place, without reader refills.
+ *
+ * Instance can be reused for many inputs, e.g. one per thread:
+ * <pre>
+ * reader.setText(value);
+ * try (TokenStream stream = analyzer.tokenStream(field, reader)) {
+ *     ...
+ * }
+ * </pre>
+ */
+public final class CharSequenceReader extends Reader {
+
+    private char[] buffer;
+    private int offset, length;
+    private int pos;
+    private char[] copyBuffer;
+
+
+    public CharSequenceReader() {
+        setText(null, 0, 0);
+    }
+
+
+    public CharSequenceReader(CharSequence text) {
+        setText(text);
+    }
+
+
+    public CharSequenceReader(char[] buffer, int offset, int length) {
+        setText(buffer, offset, length);
+    }
+
+
+    /**
+     * Sets chars to read. Array backed {@link CharBuffer}s are used in place, other sequences are copied once
+     * into an internal reusable buffer.
+     *
+     * @param text input text
+     */
+    public void setText(CharSequence text) {
+        if (text instanceof CharBuffer && ((CharBuffer) text).hasArray()) {
+            CharBuffer cb = (CharBuffer) text;
+            setText(cb.array(), cb.arrayOffset() + cb.position(), cb.remaining());
+        } else {
+            int len = text.length();
+            copyBuffer = ArrayUtil.grow(copyBuffer == null ? new char[0] : copyBuffer, len);
+            if (text instanceof String) {
+                ((String) text).getChars(0, len, copyBuffer, 0);
+            } else {
+                for (int i = 0; i < len; i++) {
+                    copyBuffer[i] = text.charAt(i);
+                }
+            }
+            setText(copyBuffer, 0, len);
+        }
+    }
+
+
+    /**
+     * Sets chars to read. Array is not copied, so it must not be modified until the text is consumed.
+     *
+     * @param buffer input chars
+     * @param offset start of the text in buffer
+     * @param length length of the text
+     */
+    public void setText(char[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        this.pos = 0;
+    }
+
+
+    /**
+     * Marks remaining chars as consumed. Used by tokenizers that scan {@link #buffer()} directly.
+     */
+    void consume() {
+        pos = length;
+    }
+
+
+    char[] buffer() {
+        return buffer;
+    }
+
+
+    int offset() {
+        return offset + pos;
+    }
+
+
+    int length() {
+        return length - pos;
+    }
+
+
+    @Override
+    public int read(char[] cbuf, int off, int len) {
+        if (pos >= length) {
+            return -1;
+        }
+        int count = Math.min(len, length - pos);
+        System.arraycopy(buffer, offset + pos, cbuf, off, count);
+        pos += count;
+        return count;
+    }
+
+
+    @Override
+    public int read() {
+        return pos < length ? buffer[offset + pos++] : -1;
+    }
+
+
+    @Override
+    public void close() {
+        pos = length;
+    }
+}
@@ -21,29 +21,42 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.List;
+import java.util.Objects;
 import org.apache.lucene.analysis.TokenFilter;
 
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
 import org.apache.lucene.analysis.tokenattributes.PackedTokenAttributeImpl;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
 import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
-import org.apache.lucene.util.AttributeImpl;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
 
-public abstract class CompositionFilter extends TokenFilter {
+public abstract class CompositionFilter extends TokenFilter implements Accountable {
 
     private static final String DEFAULT_WHITESPACE = " ";
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(CompositionFilter.class)
+            + 3 * RamUsageEstimator.shallowSizeOfInstance(ArrayDeque.class)
+            + RamUsageEstimator.shallowSizeOfInstance(ArrayList.class);
+    private static final long TOKEN_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(
+            PackedTokenAttributeImpl.class);
 
     protected final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
     protected final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
     protected final TypeAttribute typeAtt = addAttribute(TypeAttribute.class);
-
-    private final PackedTokenAttributeImpl compositionTermAtt = new PackedTokenAttributeImpl();
-    private State previous;
-    private final Deque<State> rollbackStack;
-    private final Deque<PackedTokenAttributeImpl> tokenStack;
-    private final List<PackedTokenAttributeImpl> compositionTerms;
+    private final PositionIncrementAttribute posIncrAtt = addAttribute(PositionIncrementAttribute.class);
+
+    private PackedTokenAttributeImpl compositionTermAtt = new PackedTokenAttributeImpl();
+    private IdentifierTokenAttributeImpl previous;
+    private Deque<IdentifierTokenAttributeImpl> rollbackStack;
+    private Deque<PackedTokenAttributeImpl> tokenStack;
+    // composition terms are owned by composition, subclasses may emit them after it is cleared
+    private List<PackedTokenAttributeImpl> compositionTerms;
+    // released snapshots of rollback and previous tokens
+    private Deque<IdentifierTokenAttributeImpl> pool;
     private boolean rollback;
+    private BufferShrinkPolicy bufferShrinkPolicy = BufferShrinkPolicy.NEVER;
 
 
     public CompositionFilter(TokenStream input) {
@@ -51,6 +64,7 @@ public abstract class CompositionFilter extends TokenFilter {
         rollbackStack = new ArrayDeque<>();
         tokenStack = new ArrayDeque<>();
         compositionTerms = new ArrayList<>();
+        pool = new ArrayDeque<>();
     }
 
 
@@ -58,20 +72,20 @@ public abstract class CompositionFilter extends TokenFilter {
     public final boolean incrementToken() throws IOException {
         boolean read;
         if (!tokenStack.isEmpty()) {
-            tokenStack.pop().copyTo((AttributeImpl) termAtt);
+            emit(tokenStack.pop());
             return true;
         } else if (previous == null && rollback) {
             if (!rollbackStack.isEmpty()) {
-                restoreState(rollbackStack.pop());
+                restore(rollbackStack.pop());
                 return true;
             } else {
                 rollback = false;
             }
         } else {
-            rollbackStack.clear();
+            clearRollback();
         }
         if (previous != null) {
-            restoreState(previous);
+            restore(previous);
             previous = null;
             read = true;
         } else {
@@ -82,7 +96,7 @@ public abstract class CompositionFilter extends TokenFilter {
         CState lastState = null;
         do {
             if (read) {
-                rollbackStack.add(captureState());
+                rollbackStack.add(capture());
                 lastState = validateToken(termAtt.toString());
                 if (lastState == CState.CONTINUE) {
                     appendComposition(termAtt, offsetAtt);
@@ -126,11 +140,62 @@ public abstract class CompositionFilter extends TokenFilter {
     }
 
 
+    /**
+     * Sets policy of releasing buffers on reset. Composition buffer and pooled rollback snapshots longer than
+     * {@link BufferShrinkPolicy#getMaxRetainedChars()} are released, all stacks and pool are released when pool
+     * holds more than {@link BufferShrinkPolicy#getMaxRetainedTokens()} snapshots. Default policy never releases
+     * them.
+     *
+     * @param bufferShrinkPolicy policy, may be shared by many filters
+     */
+    public void setBufferShrinkPolicy(BufferShrinkPolicy bufferShrinkPolicy) {
+        this.bufferShrinkPolicy = Objects.requireNonNull(bufferShrinkPolicy, "bufferShrinkPolicy");
+    }
+
+
+    /**
+     * Returns estimated size of buffers of this filter, without input stream and attributes.
+     */
+    @Override
+    public long ramBytesUsed() {
+        long size = BASE_RAM_BYTES_USED + ramBytesUsed(compositionTermAtt);
+        if (previous != null) {
+            size += previous.ramBytesUsed();
+        }
+        size += (long) RamUsageEstimator.NUM_BYTES_OBJECT_REF * (rollbackStack.size() + pool.size());
+        for (IdentifierTokenAttributeImpl token : rollbackStack) {
+            size += token.ramBytesUsed();
+        }
+        for (IdentifierTokenAttributeImpl token : pool) {
+            size += token.ramBytesUsed();
+        }
+        return size + ramBytesUsed(tokenStack) + ramBytesUsed(compositionTerms);
+    }
+
+
+    private static long ramBytesUsed(Collection<PackedTokenAttributeImpl> tokens) {
+        long size = (long) RamUsageEstimator.NUM_BYTES_OBJECT_REF * tokens.size();
+        for (PackedTokenAttributeImpl token : tokens) {
+            size += ramBytesUsed(token);
+        }
+        return size;
+    }
+
+
+    private static long ramBytesUsed(PackedTokenAttributeImpl token) {
+        return TOKEN_RAM_BYTES_USED + RamUsageEstimator.sizeOf(token.buffer());
+    }
+
+
     protected PackedTokenAttributeImpl getComposition() {
         return compositionTermAtt;
     }
 
 
+    /**
+     * Returns tokens of current composition. Tokens are not reused, so they may be passed to
+     * {@link #addTokens(Collection)}.
+     */
     public List<PackedTokenAttributeImpl> getCompositionTerms() {
         return compositionTerms;
     }
@@ -141,7 +206,7 @@ public abstract class CompositionFilter extends TokenFilter {
         boolean result = false;
         clear();
         if (rollback) {
-            restoreState(rollbackStack.pop());
+            restore(rollbackStack.pop());
             result = true;
         }
         return result;
@@ -149,13 +214,46 @@ public abstract class CompositionFilter extends TokenFilter {
 
 
     private void markComposition() {
-        tokenStack.pop().copyTo((AttributeImpl) termAtt);
+        emit(tokenStack.pop());
         clear();
     }
 
 
+    private void emit(PackedTokenAttributeImpl token) {
+        termAtt.copyBuffer(token.buffer(), 0, token.length());
+        offsetAtt.setOffset(token.startOffset(), token.endOffset());
+        typeAtt.setType(token.type());
+        posIncrAtt.setPositionIncrement(token.getPositionIncrement());
+    }
+
+
     private void setPrevious() {
-        previous = captureState();
+        previous = capture();
+    }
+
+
+    /**
+     * Copies current token to pooled snapshot.
+     */
+    private IdentifierTokenAttributeImpl capture() {
+        IdentifierTokenAttributeImpl token = pool.isEmpty() ? new IdentifierTokenAttributeImpl() : pool.pop();
+        token.copyTokenFrom(termAtt, offsetAtt, typeAtt, posIncrAtt);
+        return token;
+    }
+
+
+    /**
+     * Copies snapshot to current token and releases it.
+     */
+    private void restore(IdentifierTokenAttributeImpl token) {
+        token.copyTokenTo(termAtt, offsetAtt, typeAtt, posIncrAtt);
+        pool.push(token);
+    }
+
+
+    private void clearRollback() {
+        pool.addAll(rollbackStack);
+        rollbackStack.clear();
     }
 
 
@@ -163,8 +261,31 @@ public abstract class CompositionFilter extends TokenFilter {
     public final void reset() throws IOException {
         super.reset();
         clear();
-        rollbackStack.clear();
+        clearRollback();
         tokenStack.clear();
+        if (previous != null) {
+            pool.push(previous);
+            previous = null;
+        }
+        shrinkBuffers();
+    }
+
+
+    /**
+     * Releases buffers which grew over limits of policy.
+     */
+    private void shrinkBuffers() {
+        if (bufferShrinkPolicy.releaseChars(compositionTermAtt.buffer().length)) {
+            compositionTermAtt = new PackedTokenAttributeImpl();
+        }
+        if (bufferShrinkPolicy.releaseTokens(pool.size())) {
+            pool = new ArrayDeque<>();
+            rollbackStack = new ArrayDeque<>();
+            tokenStack = new ArrayDeque<>();
+            compositionTerms = new ArrayList<>();
+        } else {
+            pool.removeIf(token -> bufferShrinkPolicy.releaseChars(token.buffer().length));
+        }
     }
 
 
@@ -207,9 +328,12 @@ public abstract class CompositionFilter extends TokenFilter {
         compositionTermAtt.append(source);
         compositionTermAtt.setOffset(startOffset, offsetAtt.endOffset());
 
-        PackedTokenAttributeImpl newAttr = new PackedTokenAttributeImpl();
-        ((PackedTokenAttributeImpl) source).copyTo(newAttr);
-        compositionTerms.add(newAttr);
+        PackedTokenAttributeImpl term = new PackedTokenAttributeImpl();
+        term.copyBuffer(source.buffer(), 0, source.length());
+        term.setOffset(offsetAtt.startOffset(), offsetAtt.endOffset());
+        term.setType(typeAtt.type());
+        term.setPositionIncrement(posIncrAtt.getPositionIncrement());
+        compositionTerms.add(term);
     }
 
 
@@ -223,7 +347,7 @@ public abstract class CompositionFilter extends TokenFilter {
 
     /**
      * Get default whitespace character that separate tokens in private
-     * {@link #appendComposition(PackedTokenAttributeImpl, CharTermAttribute, OffsetAttribute)} method. You
+     * {@link #appendComposition(CharTermAttribute, OffsetAttribute)} method. You
      * can override it if you need your own.
      *
      * @return whitespace delimiter
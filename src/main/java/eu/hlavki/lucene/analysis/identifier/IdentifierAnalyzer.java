@@ -0,0 +1,129 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.core.LowerCaseFilter;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+
+/**
+ * Base of ready-made identifier analyzers. Components are reused per field and chain can be warmed up before
+ * serving traffic, see {@link #warmup(String, int)}.
+ */
+public abstract class IdentifierAnalyzer extends Analyzer {
+
+    private static final String[] COURTS = {"ÚS", "Tdo", "Obo", "Cdo", "Sžo", "Ndc"};
+    private static final String[] DOTTED = {"org", "apache", "lucene", "analysis", "eu", "hlavki", "util"};
+
+    protected final IdentifierAnalyzerConfig config;
+
+
+    protected IdentifierAnalyzer(IdentifierAnalyzerConfig config) {
+        super(PER_FIELD_REUSE_STRATEGY);
+        this.config = config;
+    }
+
+
+    public IdentifierAnalyzerConfig getConfig() {
+        return config;
+    }
+
+
+    /**
+     * Appends ASCII folding and lower casing to the chain, as configured.
+     */
+    protected TokenStream normalizeTokens(TokenStream in) {
+        TokenStream result = in;
+        if (config.isAsciiFolding()) {
+            result = new ASCIIFoldingFilter(result);
+        }
+        if (config.isLowerCase()) {
+            result = new LowerCaseFilter(result);
+        }
+        return result;
+    }
+
+
+    @Override
+    protected TokenStream normalize(String fieldName, TokenStream in) {
+        return normalizeTokens(in);
+    }
+
+
+    /**
+     * Drives synthetic corpus of court file numbers, ECLIs, IP addresses and dotted paths through the chain of
+     * given field, so components are created and hot paths are compiled before the first real request. Each
+     * identifier is analyzed both as {@link String}, like stored fields, and through {@link CharSequenceReader},
+     * because tokenizer scans them by different code paths.
+     *
+     * @param fieldName field whose components are warmed up
+     * @param documents number of synthetic identifiers to analyze
+     */
+    public void warmup(String fieldName, int documents) {
+        Random random = new Random(42);
+        CharSequenceReader reader = new CharSequenceReader();
+        try {
+            for (int i = 0; i < documents; i++) {
+                String identifier = syntheticIdentifier(random, i);
+                consume(tokenStream(fieldName, identifier));
+                reader.setText(identifier);
+                consume(tokenStream(fieldName, reader));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    private static void consume(TokenStream stream) throws IOException {
+        try (stream) {
+            stream.reset();
+            while (stream.incrementToken()) {
+                // consume
+            }
+            stream.end();
+        }
+    }
+
+
+    private static String syntheticIdentifier(Random random, int i) {
+        int year = 2000 + random.nextInt(23);
+        switch (i % 4) {
+            case 0:
+                return (1 + random.nextInt(9)) + COURTS[random.nextInt(COURTS.length)] + " " + random.nextInt(500)
+                        + "/" + year;
+            case 1:
+                return "ECLI:SK:" + COURTS[random.nextInt(COURTS.length)].toUpperCase() + ":" + year + ":"
+                        + (1 + random.nextInt(9)) + ".US." + random.nextInt(500) + "." + year + "." + (1 + random.nextInt(3));
+            case 2:
+                return random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256) + "."
+                        + random.nextInt(256);
+            default:
+                StringBuilder sb = new StringBuilder();
+                for (int j = 0, n = 2 + random.nextInt(5); j < n; j++) {
+                    if (j > 0) {
+                        sb.append('.');
+                    }
+                    sb.append(DOTTED[random.nextInt(DOTTED.length)]);
+                }
+                return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import static eu.hlavki.lucene.analysis.identifier.IdentifierFilter.EMPTY_CHAR;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import org.apache.lucene.analysis.CharArraySet;
+
+/**
+ * Immutable configuration of {@link IdentifierIndexAnalyzer} and {@link IdentifierQueryAnalyzer}. Both
+ * analyzers of one field should share the same configuration.
+ *
+ * <pre>
+ * IdentifierAnalyzerConfig config = IdentifierAnalyzerConfig.builder().minGramSize(2).maxGramSize(6).build();
+ * </pre>
+ */
+public final class IdentifierAnalyzerConfig {
+
+    public static final IdentifierAnalyzerConfig DEFAULT = builder().build();
+
+    private final int minGramSize;
+    private final int maxGramSize;
+    private final boolean includeIdentifier;
+    private final char customDelimiter;
+    private final int maxSkip;
+    private final int maxSkipGrams;
+    private final boolean lengthWeighting;
+    private final boolean proseDetection;
+    private final boolean graph;
+    private final boolean emitReversed;
+    private final boolean asciiFolding;
+    private final boolean lowerCase;
+    private final PunctationTable punctationTable;
+    private final SegmentSymbolTable symbolTable;
+    private final BufferShrinkPolicy bufferShrinkPolicy;
+    private final CharArraySet stopSegments;
+    private final int minSegmentLength;
+    private final List<IdentifierType> identifierTypes;
+
+
+    private IdentifierAnalyzerConfig(Builder builder) {
+        if (builder.minGramSize < 1) {
+            throw new IllegalArgumentException("minGramSize must be greater than zero");
+        } else if (builder.maxGramSize < builder.minGramSize) {
+            throw new IllegalArgumentException("maxGramSize must not be less than minGramSize");
+        } else if (builder.maxSkip < 0) {
+            throw new IllegalArgumentException("maxSkip must not be negative");
+        } else if (builder.maxSkipGrams < 0) {
+            throw new IllegalArgumentException("maxSkipGrams must not be negative");
+        } else if (builder.minSegmentLength < 1) {
+            throw new IllegalArgumentException("minSegmentLength must be greater than zero");
+        } else if (builder.graph && builder.lengthWeighting) {
+            throw new IllegalArgumentException("lengthWeighting cannot be combined with graph");
+        }
+        this.minGramSize = builder.minGramSize;
+        this.maxGramSize = builder.maxGramSize;
+        this.includeIdentifier = builder.includeIdentifier;
+        this.customDelimiter = builder.customDelimiter;
+        this.maxSkip = builder.maxSkip;
+        this.maxSkipGrams = builder.maxSkipGrams;
+        this.lengthWeighting = builder.lengthWeighting;
+        this.proseDetection = builder.proseDetection;
+        this.graph = builder.graph;
+        this.emitReversed = builder.emitReversed;
+        this.asciiFolding = builder.asciiFolding;
+        this.lowerCase = builder.lowerCase;
+        this.punctationTable = builder.punctationTable;
+        this.symbolTable = builder.symbolTable;
+        this.bufferShrinkPolicy = builder.bufferShrinkPolicy;
+        this.stopSegments = builder.stopSegments;
+        this.minSegmentLength = builder.minSegmentLength;
+        this.identifierTypes = builder.identifierTypes;
+    }
+
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+
+    public int getMinGramSize() {
+        return minGramSize;
+    }
+
+
+    public int getMaxGramSize() {
+        return maxGramSize;
+    }
+
+
+    public boolean isIncludeIdentifier() {
+        return includeIdentifier;
+    }
+
+
+    public char getCustomDelimiter() {
+        return customDelimiter;
+    }
+
+
+    public int getMaxSkip() {
+        return maxSkip;
+    }
+
+
+    public int getMaxSkipGrams() {
+        return maxSkipGrams;
+    }
+
+
+    public boolean isLengthWeighting() {
+        return lengthWeighting;
+    }
+
+
+    public boolean isProseDetection() {
+        return proseDetection;
+    }
+
+
+    public boolean isGraph() {
+        return graph;
+    }
+
+
+    public boolean isEmitReversed() {
+        return emitReversed;
+    }
+
+
+    public boolean isAsciiFolding() {
+        return asciiFolding;
+    }
+
+
+    public boolean isLowerCase() {
+        return lowerCase;
+    }
+
+
+    public PunctationTable getPunctationTable() {
+        return punctationTable;
+    }
+
+
+    public SegmentSymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+
+    public BufferShrinkPolicy getBufferShrinkPolicy() {
+        return bufferShrinkPolicy;
+    }
+
+
+    public CharArraySet getStopSegments() {
+        return stopSegments;
+    }
+
+
+    public int getMinSegmentLength() {
+        return minSegmentLength;
+    }
+
+
+    public List<IdentifierType> getIdentifierTypes() {
+        return identifierTypes;
+    }
+
+    public static final class Builder {
+
+        private int minGramSize = IdentifierNGramFilter.DEFAULT_MIN_NGRAM_SIZE;
+        private int maxGramSize = IdentifierNGramFilter.DEFAULT_MAX_NGRAM_SIZE;
+        private boolean includeIdentifier = IdentifierNGramFilter.DEFAULT_INCLUDE_IDENTIFIER;
+        private char customDelimiter = EMPTY_CHAR;
+        private int maxSkip = IdentifierNGramFilter.DEFAULT_MAX_SKIP;
+        private int maxSkipGrams = IdentifierNGramFilter.DEFAULT_MAX_SKIP_GRAMS;
+        private boolean lengthWeighting = IdentifierNGramFilter.DEFAULT_LENGTH_WEIGHTING;
+        private boolean proseDetection = IdentifierNGramFilter.DEFAULT_PROSE_DETECTION;
+        private boolean graph = IdentifierNGramFilter.DEFAULT_GRAPH;
+        private boolean emitReversed = IdentifierFilter.DEFAULT_EMIT_REVERSED;
+        private boolean asciiFolding = true;
+        private boolean lowerCase = true;
+        private PunctationTable punctationTable = PunctationTable.DEFAULT;
+        private SegmentSymbolTable symbolTable;
+        private BufferShrinkPolicy bufferShrinkPolicy = BufferShrinkPolicy.NEVER;
+        private CharArraySet stopSegments;
+        private int minSegmentLength = IdentifierNGramFilter.DEFAULT_MIN_SEGMENT_LENGTH;
+        private List<IdentifierType> identifierTypes = Collections.emptyList();
+
+
+        private Builder() {
+        }
+
+
+        public Builder minGramSize(int minGramSize) {
+            this.minGramSize = minGramSize;
+            return this;
+        }
+
+
+        public Builder maxGramSize(int maxGramSize) {
+            this.maxGramSize = maxGramSize;
+            return this;
+        }
+
+
+        public Builder includeIdentifier(boolean includeIdentifier) {
+            this.includeIdentifier = includeIdentifier;
+            return this;
+        }
+
+
+        public Builder customDelimiter(char customDelimiter) {
+            this.customDelimiter = customDelimiter;
+            return this;
+        }
+
+
+        public Builder skipGrams(int maxSkip, int maxSkipGrams) {
+            this.maxSkip = maxSkip;
+            this.maxSkipGrams = maxSkipGrams;
+            return this;
+        }
+
+
+        public Builder lengthWeighting(boolean lengthWeighting) {
+            this.lengthWeighting = lengthWeighting;
+            return this;
+        }
+
+
+        public Builder proseDetection(boolean proseDetection) {
+            this.proseDetection = proseDetection;
+            return this;
+        }
+
+
+        public Builder graph(boolean graph) {
+            this.graph = graph;
+            return this;
+        }
+
+
+        public Builder emitReversed(boolean emitReversed) {
+            this.emitReversed = emitReversed;
+            return this;
+        }
+
+
+        public Builder asciiFolding(boolean asciiFolding) {
+            this.asciiFolding = asciiFolding;
+            return this;
+        }
+
+
+        public Builder lowerCase(boolean lowerCase) {
+            this.lowerCase = lowerCase;
+            return this;
+        }
+
+
+        public Builder punctationTable(PunctationTable punctationTable) {
+            this.punctationTable = Objects.requireNonNull(punctationTable, "punctationTable");
+            return this;
+        }
+
+
+        public Builder symbolTable(SegmentSymbolTable symbolTable) {
+            this.symbolTable = symbolTable;
+            return this;
+        }
+
+
+        public Builder bufferShrinkPolicy(BufferShrinkPolicy bufferShrinkPolicy) {
+            this.bufferShrinkPolicy = Objects.requireNonNull(bufferShrinkPolicy, "bufferShrinkPolicy");
+            return this;
+        }
+
+
+        /**
+         * Sets stop segments, see {@link IdentifierNGramFilter#setStopSegments(CharArraySet)}. Set is copied, so
+         * later changes of given set don't affect analyzers.
+         */
+        public Builder stopSegments(CharArraySet stopSegments) {
+            this.stopSegments = stopSegments != null
+                    ? CharArraySet.unmodifiableSet(CharArraySet.copy(stopSegments)) : null;
+            return this;
+        }
+
+
+        public Builder minSegmentLength(int minSegmentLength) {
+            this.minSegmentLength = minSegmentLength;
+            return this;
+        }
+
+
+        public Builder identifierTypes(List<IdentifierType> identifierTypes) {
+            this.identifierTypes = List.copyOf(identifierTypes);
+            return this;
+        }
+
+
+        public IdentifierAnalyzerConfig build() {
+            return new IdentifierAnalyzerConfig(this);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import org.apache.lucene.util.AttributeFactory;
+
+/**
+ * Attribute factory of identifier chains. Term, offset, type, position, term frequency, hash and symbol
+ * attributes are implemented by one {@link IdentifierTokenAttributeImpl}, other attributes are created by
+ * {@link AttributeFactory#DEFAULT_ATTRIBUTE_FACTORY}. {@link PunctationTokenizer} uses it by default.
+ */
+public final class IdentifierAttributeFactory
+        extends AttributeFactory.StaticImplementationAttributeFactory<IdentifierTokenAttributeImpl> {
+
+    public static final IdentifierAttributeFactory INSTANCE = new IdentifierAttributeFactory();
+
+
+    private IdentifierAttributeFactory() {
+        super(AttributeFactory.DEFAULT_ATTRIBUTE_FACTORY, IdentifierTokenAttributeImpl.class);
+    }
+
+
+    @Override
+    protected IdentifierTokenAttributeImpl createInstance() {
+        return new IdentifierTokenAttributeImpl();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import java.util.Collection;
+import java.util.Set;
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.bloom.BloomFilteringPostingsFormat;
+import org.apache.lucene.codecs.lucene90.Lucene90Codec;
+import org.apache.lucene.codecs.lucene90.Lucene90PostingsFormat;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.index.IndexOptions;
+
+/**
+ * Codec for indexes with identifier fields. Terms dictionary of identifier fields is fronted by bloom filter, so
+ * seeks of terms missing in a segment usually finish without terms dictionary lookup. Other fields use default
+ * formats. Codec keeps name of {@link Lucene90Codec} and postings format is recorded per field, so the index is
+ * readable with default codec when lucene-codecs is on classpath. lucene-codecs is optional dependency of this
+ * library, so both writers and readers of such index have to declare it.
+ * <pre>
+ * IndexWriterConfig iwc = new IndexWriterConfig(analyzer).setCodec(new IdentifierCodec(Set.of("id")));
+ * doc.add(new Field("id", value, IdentifierCodec.DOCS_ONLY_TYPE));
+ * </pre>
+ */
+public class IdentifierCodec extends Lucene90Codec {
+
+    /**
+     * Field type of n-gram fields searched by exact terms only: docs-only postings without norms. Fields with
+     * length weighting need {@link IndexOptions#DOCS_AND_FREQS}.
+     */
+    public static final FieldType DOCS_ONLY_TYPE;
+
+    static {
+        FieldType type = new FieldType();
+        type.setTokenized(true);
+        type.setOmitNorms(true);
+        type.setIndexOptions(IndexOptions.DOCS);
+        type.freeze();
+        DOCS_ONLY_TYPE = type;
+    }
+
+    private final Set<String> identifierFields;
+    private final PostingsFormat identifierPostings;
+
+
+    /**
+     * Creates codec with bloom filter in front of terms dictionary of given fields.
+     *
+     * @param identifierFields names of identifier fields
+     */
+    public IdentifierCodec(Collection<String> identifierFields) {
+        this(identifierFields, new BloomFilteringPostingsFormat(new Lucene90PostingsFormat()));
+    }
+
+
+    /**
+     * Creates codec with custom postings format of identifier fields.
+     *
+     * @param identifierFields names of identifier fields
+     * @param identifierPostings postings format of identifier fields
+     */
+    public IdentifierCodec(Collection<String> identifierFields, PostingsFormat identifierPostings) {
+        this.identifierFields = Set.copyOf(identifierFields);
+        this.identifierPostings = identifierPostings;
+    }
+
+
+    @Override
+    public PostingsFormat getPostingsFormatForField(String field) {
+        return identifierFields.contains(field) ? identifierPostings : super.getPostingsFormatForField(field);
+    }
+}
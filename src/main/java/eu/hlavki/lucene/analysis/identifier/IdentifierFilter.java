@@ -16,24 +16,41 @@ package eu.hlavki.lucene.analysis.identifier;
  * limitations under the License.
  */
 import java.io.IOException;
+import java.util.Objects;
 import org.apache.lucene.analysis.TokenFilter;
 import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.reverse.ReverseStringFilter;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
-import org.apache.lucene.analysis.tokenattributes.PackedTokenAttributeImpl;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
 import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
-import org.apache.lucene.util.AttributeImpl;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
 
-public class IdentifierFilter extends TokenFilter {
+public class IdentifierFilter extends TokenFilter implements Accountable {
 
     public static final boolean DEFAULT_IGNORE_DELIMITER = false;
     public static final char EMPTY_CHAR = 0x0;
-    private final PackedTokenAttributeImpl compositionTermAtt = new PackedTokenAttributeImpl();
+    public static final boolean DEFAULT_EMIT_REVERSED = false;
+
+    /**
+     * Prefix of reversed terms
+     */
+    public static final char REVERSED_MARKER = ReverseStringFilter.START_OF_HEADING_MARKER;
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(IdentifierFilter.class);
+
+    private IdentifierTokenAttributeImpl compositionTermAtt = new IdentifierTokenAttributeImpl();
     protected final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
     protected final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
     protected final TypeAttribute typeAtt = addAttribute(TypeAttribute.class);
+    private final PositionIncrementAttribute posIncrAtt = addAttribute(PositionIncrementAttribute.class);
     private boolean finished;
     private final char customDelimiter;
+    private IdentifierTokenAttributeImpl reversed = new IdentifierTokenAttributeImpl();
+    private boolean emitReversed = DEFAULT_EMIT_REVERSED;
+    private boolean reversedPending;
+    private BufferShrinkPolicy bufferShrinkPolicy = BufferShrinkPolicy.NEVER;
 
 
     protected IdentifierFilter(TokenStream input, char customDelimiter) {
@@ -48,6 +65,37 @@ public class IdentifierFilter extends TokenFilter {
     }
 
 
+    /**
+     * Enables emission of reversed identifier prefixed with {@link #REVERSED_MARKER} at the same position, so
+     * suffix searches can be rewritten to prefix searches, see {@link IdentifierWildcardQueries}.
+     *
+     * @param emitReversed true to emit reversed identifier too
+     */
+    public void setEmitReversed(boolean emitReversed) {
+        this.emitReversed = emitReversed;
+    }
+
+
+    /**
+     * Sets policy of releasing buffers on reset. Composition buffers longer than
+     * {@link BufferShrinkPolicy#getMaxRetainedChars()} are released. Default policy never releases them.
+     *
+     * @param bufferShrinkPolicy policy, may be shared by many filters
+     */
+    public void setBufferShrinkPolicy(BufferShrinkPolicy bufferShrinkPolicy) {
+        this.bufferShrinkPolicy = Objects.requireNonNull(bufferShrinkPolicy, "bufferShrinkPolicy");
+    }
+
+
+    /**
+     * Returns estimated size of buffers of this filter, without input stream and attributes.
+     */
+    @Override
+    public long ramBytesUsed() {
+        return BASE_RAM_BYTES_USED + compositionTermAtt.ramBytesUsed() + reversed.ramBytesUsed();
+    }
+
+
     private boolean overwriteDelimiter() {
         return customDelimiter != EMPTY_CHAR;
     }
@@ -55,6 +103,36 @@ public class IdentifierFilter extends TokenFilter {
 
     @Override
     public final boolean incrementToken() throws IOException {
+        if (reversedPending) {
+            reversedPending = false;
+            reversed.copyTokenTo(termAtt, offsetAtt, typeAtt, posIncrAtt);
+            posIncrAtt.setPositionIncrement(0);
+            reverse(termAtt);
+            return true;
+        }
+        boolean read = nextComposition();
+        if (read && emitReversed) {
+            reversed.copyTokenFrom(termAtt, offsetAtt, typeAtt, posIncrAtt);
+            reversedPending = true;
+        }
+        return read;
+    }
+
+
+    /**
+     * Reverses term in place and prefixes it with {@link #REVERSED_MARKER}.
+     */
+    static void reverse(CharTermAttribute termAtt) {
+        int length = termAtt.length();
+        char[] buffer = termAtt.resizeBuffer(length + 1);
+        System.arraycopy(buffer, 0, buffer, 1, length);
+        buffer[0] = REVERSED_MARKER;
+        ReverseStringFilter.reverse(buffer, 1, length);
+        termAtt.setLength(length + 1);
+    }
+
+
+    private boolean nextComposition() throws IOException {
         boolean read, hasDelim = false;
         while (read = input.incrementToken()) {
             boolean punctation = typeAtt.type().equals(PunctationTokenizer.TOKEN_TYPES[PunctationTokenizer.PUNCTATION]);
@@ -85,18 +163,25 @@ public class IdentifierFilter extends TokenFilter {
     public void reset() throws IOException {
         super.reset();
         finished = false;
+        reversedPending = false;
         compositionTermAtt.clear();
+        if (bufferShrinkPolicy.releaseChars(compositionTermAtt.buffer().length)) {
+            compositionTermAtt = new IdentifierTokenAttributeImpl();
+        }
+        if (bufferShrinkPolicy.releaseChars(reversed.buffer().length)) {
+            reversed = new IdentifierTokenAttributeImpl();
+        }
     }
 
 
     private void markComposition() {
         compositionTermAtt.setType(PunctationTokenizer.TOKEN_TYPES[PunctationTokenizer.ALPHANUM]);
-        ((AttributeImpl) compositionTermAtt).copyTo((AttributeImpl) termAtt);
+        compositionTermAtt.copyTokenTo(termAtt, offsetAtt, typeAtt, posIncrAtt);
         compositionTermAtt.clear();
     }
 
 
-    private void appendComposition(PackedTokenAttributeImpl target, CharTermAttribute source, OffsetAttribute offsetAtt) {
+    private void appendComposition(IdentifierTokenAttributeImpl target, CharTermAttribute source, OffsetAttribute offsetAtt) {
         // pridaj atribúty do kompozície
         int startOffset = target.length() == 0 ? offsetAtt.startOffset() : target.startOffset();
         target.append(source);
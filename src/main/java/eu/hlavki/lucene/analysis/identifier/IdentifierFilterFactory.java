@@ -21,7 +21,22 @@ import org.apache.lucene.analysis.TokenStream;
 
 public class IdentifierFilterFactory extends TokenFilterFactory {
 
+    /**
+     * SPI name
+     */
+    public static final String NAME = "identifier";
+
     private final char customDelimiter;
+    private final boolean emitReversed;
+    private final BufferShrinkPolicy bufferShrinkPolicy;
+
+
+    /**
+     * Default ctor for compatibility with SPI
+     */
+    public IdentifierFilterFactory() {
+        throw defaultCtorException();
+    }
 
 
     /**
@@ -32,6 +47,9 @@ public class IdentifierFilterFactory extends TokenFilterFactory {
     public IdentifierFilterFactory(Map<String, String> args) {
         super(args);
         customDelimiter = getChar(args, "customDelimiter", IdentifierFilter.EMPTY_CHAR);
+        emitReversed = getBoolean(args, "emitReversed", IdentifierFilter.DEFAULT_EMIT_REVERSED);
+        bufferShrinkPolicy = new BufferShrinkPolicy(getInt(args, "maxRetainedChars", Integer.MAX_VALUE),
+                Integer.MAX_VALUE);
         if (!args.isEmpty()) {
             throw new IllegalArgumentException("Unknown parameters: " + args);
         }
@@ -40,6 +58,18 @@ public class IdentifierFilterFactory extends TokenFilterFactory {
 
     @Override
     public IdentifierFilter create(TokenStream input) {
-        return new IdentifierFilter(input, customDelimiter);
+        IdentifierFilter filter = new IdentifierFilter(input, customDelimiter);
+        filter.setEmitReversed(emitReversed);
+        filter.setBufferShrinkPolicy(bufferShrinkPolicy);
+        return filter;
+    }
+
+
+    /**
+     * Returns buffer policy shared by all filters created by this factory, see
+     * {@link BufferShrinkPolicy#getReleaseCount()}.
+     */
+    public BufferShrinkPolicy getBufferShrinkPolicy() {
+        return bufferShrinkPolicy;
     }
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import org.apache.lucene.util.Attribute;
+
+/**
+ * 64-bit polynomial hash of current term, <code>h = c[0]*B^(n-1) + c[1]*B^(n-2) + ... + c[n-1]</code> modulo
+ * 2^64. {@link PunctationTokenizer} sets it for every segment while scanning and {@link IdentifierNGramFilter}
+ * combines hashes of segments and delimiters into hash of every n-gram in constant time, without reading chars of
+ * composition again. Hash equals {@link #hash(char[], int, int)} of term as emitted by these components, filters
+ * which rewrite term (e.g. lower casing) do not update it.
+ *
+ * Hash is a cheap fingerprint for deduplication or caching, not a collision-resistant digest.
+ */
+public interface IdentifierHashAttribute extends Attribute {
+
+    /**
+     * Returns hash of current term.
+     */
+    long getHash();
+
+
+    /**
+     * Sets hash of current term.
+     */
+    void setHash(long hash);
+
+
+    /**
+     * Returns hash of given chars.
+     */
+    static long hash(char[] buffer, int offset, int length) {
+        return RollingHash.hash(buffer, offset, length);
+    }
+}
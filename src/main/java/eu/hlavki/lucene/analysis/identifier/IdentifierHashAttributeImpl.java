@@ -0,0 +1,71 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import org.apache.lucene.util.AttributeImpl;
+import org.apache.lucene.util.AttributeReflector;
+
+/**
+ * Default implementation of {@link IdentifierHashAttribute}, used when chain is not created with
+ * {@link IdentifierAttributeFactory}.
+ */
+public final class IdentifierHashAttributeImpl extends AttributeImpl implements IdentifierHashAttribute {
+
+    private long hash;
+
+
+    @Override
+    public long getHash() {
+        return hash;
+    }
+
+
+    @Override
+    public void setHash(long hash) {
+        this.hash = hash;
+    }
+
+
+    @Override
+    public void clear() {
+        hash = 0;
+    }
+
+
+    @Override
+    public void copyTo(AttributeImpl target) {
+        ((IdentifierHashAttribute) target).setHash(hash);
+    }
+
+
+    @Override
+    public void reflectWith(AttributeReflector reflector) {
+        reflector.reflect(IdentifierHashAttribute.class, "hash", hash);
+    }
+
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj == this
+                || obj instanceof IdentifierHashAttributeImpl && ((IdentifierHashAttributeImpl) obj).hash == hash;
+    }
+
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
+    }
+}
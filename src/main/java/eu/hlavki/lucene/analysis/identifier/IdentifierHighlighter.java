@@ -0,0 +1,277 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import static eu.hlavki.lucene.analysis.identifier.IdentifierFilter.EMPTY_CHAR;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.core.LowerCaseFilter;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * Highlights n-gram terms of identifier fields indexed by {@link IdentifierIndexAnalyzer} without running n-gram
+ * expansion again. Spans are taken either from offsets stored in term vector, or from single scan of segments by
+ * {@link PunctationTokenizer} followed by matching of terms against consecutive segments. Both ways cost is
+ * proportional to number of matches. Overlapping and adjacent spans are merged.
+ * <pre>
+ * IdentifierHighlighter highlighter = new IdentifierHighlighter(config);
+ * int[] spans = highlighter.spans(storedValue, matchedTerms);
+ * String html = IdentifierHighlighter.highlight(storedValue, spans, "&lt;b&gt;", "&lt;/b&gt;");
+ * </pre>
+ * Skip-grams are not highlighted by segment scan. Instance is not thread-safe.
+ */
+public final class IdentifierHighlighter {
+
+    private static final String PUNCTATION_TYPE = PunctationTokenizer.TOKEN_TYPES[PunctationTokenizer.PUNCTATION];
+
+    private final char customDelimiter;
+    private final PunctationTokenizer tokenizer;
+    private final TokenStream segments;
+    private final CharSequenceReader reader = new CharSequenceReader();
+    private final TokenBatch batch = new TokenBatch();
+    private final Spans spans = new Spans();
+
+
+    /**
+     * Creates highlighter for field analyzed with given configuration.
+     */
+    public IdentifierHighlighter(IdentifierAnalyzerConfig config) {
+        this.customDelimiter = config.getCustomDelimiter();
+        this.tokenizer = new PunctationTokenizer(IdentifierAttributeFactory.INSTANCE, config.getPunctationTable());
+        TokenStream stream = tokenizer;
+        if (config.isAsciiFolding()) {
+            stream = new ASCIIFoldingFilter(stream);
+        }
+        if (config.isLowerCase()) {
+            stream = new LowerCaseFilter(stream);
+        }
+        this.segments = stream;
+    }
+
+
+    /**
+     * Returns merged spans of terms in text as array of start and end offset pairs. Text is scanned into segments
+     * once, then every term is matched against consecutive segments.
+     *
+     * @param text stored field value
+     * @param terms matched terms as produced by index analyzer
+     * @throws IOException if tokenizer fails
+     */
+    public int[] spans(CharSequence text, Collection<? extends CharSequence> terms) throws IOException {
+        scan(text);
+        spans.clear();
+        for (CharSequence term : terms) {
+            if (term.length() == 0) {
+                continue;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                if (!isPunctation(i)) {
+                    int endOffset = match(term, i);
+                    if (endOffset >= 0) {
+                        spans.add(batch.startOffset(i), endOffset);
+                    }
+                }
+            }
+        }
+        return spans.merge();
+    }
+
+
+    /**
+     * Returns merged spans of terms as array of start and end offset pairs, read from term vector of one document.
+     *
+     * @param termVector term vector indexed with offsets
+     * @param terms matched terms
+     * @throws IllegalArgumentException if term vector has no offsets
+     * @throws IOException if reading of term vector fails
+     */
+    public static int[] spans(Terms termVector, Collection<BytesRef> terms) throws IOException {
+        if (!termVector.hasOffsets()) {
+            throw new IllegalArgumentException("Term vector has no offsets");
+        }
+        Spans result = new Spans();
+        TermsEnum termsEnum = termVector.iterator();
+        PostingsEnum postings = null;
+        for (BytesRef term : terms) {
+            if (termsEnum.seekExact(term)) {
+                postings = termsEnum.postings(postings, PostingsEnum.OFFSETS);
+                postings.nextDoc();
+                for (int i = 0, freq = postings.freq(); i < freq; i++) {
+                    postings.nextPosition();
+                    result.add(postings.startOffset(), postings.endOffset());
+                }
+            }
+        }
+        return result.merge();
+    }
+
+
+    /**
+     * Wraps spans of text into tags.
+     *
+     * @param text highlighted text
+     * @param spans merged spans as returned by <code>spans</code> methods
+     * @param preTag tag inserted before span
+     * @param postTag tag inserted after span
+     */
+    public static String highlight(CharSequence text, int[] spans, String preTag, String postTag) {
+        StringBuilder sb = new StringBuilder(text.length() + (spans.length / 2) * (preTag.length() + postTag.length()));
+        int last = 0;
+        for (int i = 0; i < spans.length; i += 2) {
+            sb.append(text, last, spans[i]).append(preTag).append(text, spans[i], spans[i + 1]).append(postTag);
+            last = spans[i + 1];
+        }
+        return sb.append(text, last, text.length()).toString();
+    }
+
+
+    private void scan(CharSequence text) throws IOException {
+        CharTermAttribute termAtt = segments.getAttribute(CharTermAttribute.class);
+        OffsetAttribute offsetAtt = segments.getAttribute(OffsetAttribute.class);
+        TypeAttribute typeAtt = segments.getAttribute(TypeAttribute.class);
+        batch.clear(0);
+        reader.setText(text);
+        tokenizer.setReader(reader);
+        try {
+            segments.reset();
+            while (segments.incrementToken()) {
+                batch.add(termAtt, offsetAtt, 1, typeAtt.type());
+            }
+            segments.end();
+        } finally {
+            segments.close();
+        }
+    }
+
+
+    private boolean isPunctation(int i) {
+        return PUNCTATION_TYPE.equals(batch.type(i));
+    }
+
+
+    /**
+     * Matches term against segments starting with segment <code>i</code> composed the way
+     * {@link IdentifierNGramFilter} composes n-grams. Returns end offset of last matched segment or -1.
+     */
+    private int match(CharSequence term, int i) {
+        int pos = 0;
+        int j = i;
+        while (true) {
+            if (!regionMatches(term, pos, j)) {
+                return -1;
+            }
+            pos += batch.termLength(j);
+            if (pos == term.length()) {
+                return batch.endOffset(j);
+            }
+            j++;
+            if (customDelimiter != EMPTY_CHAR) {
+                if (term.charAt(pos) != customDelimiter) {
+                    return -1;
+                }
+                pos++;
+                while (j < batch.size() && isPunctation(j)) {
+                    j++;
+                }
+            } else {
+                while (j < batch.size() && isPunctation(j)) {
+                    if (!regionMatches(term, pos, j)) {
+                        return -1;
+                    }
+                    pos += batch.termLength(j);
+                    j++;
+                }
+            }
+            if (j >= batch.size() || pos >= term.length()) {
+                return -1;
+            }
+        }
+    }
+
+
+    private boolean regionMatches(CharSequence term, int pos, int j) {
+        int length = batch.termLength(j);
+        if (pos + length > term.length()) {
+            return false;
+        }
+        char[] buffer = batch.termBuffer();
+        int start = batch.termStart(j);
+        for (int k = 0; k < length; k++) {
+            if (buffer[start + k] != term.charAt(pos + k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Spans {
+
+        private int[] starts = new int[8];
+        private int[] ends = new int[8];
+        private int size;
+
+
+        void clear() {
+            size = 0;
+        }
+
+
+        void add(int start, int end) {
+            if (size == starts.length) {
+                starts = ArrayUtil.grow(starts, size + 1);
+                ends = ArrayUtil.growExact(ends, starts.length);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            size++;
+        }
+
+
+        /**
+         * Returns spans sorted by start offset with overlapping and adjacent spans merged.
+         */
+        int[] merge() {
+            long[] sorted = new long[size];
+            for (int i = 0; i < size; i++) {
+                sorted[i] = ((long) starts[i] << 32) | ends[i];
+            }
+            Arrays.sort(sorted);
+            int[] result = new int[size * 2];
+            int count = 0;
+            for (long span : sorted) {
+                int start = (int) (span >>> 32);
+                int end = (int) span;
+                if (count > 0 && start <= result[count - 1]) {
+                    result[count - 1] = Math.max(result[count - 1], end);
+                } else {
+                    result[count++] = start;
+                    result[count++] = end;
+                }
+            }
+            return Arrays.copyOf(result, count);
+        }
+    }
+}
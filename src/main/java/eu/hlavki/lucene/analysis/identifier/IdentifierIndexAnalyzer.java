@@ -0,0 +1,55 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import org.apache.lucene.analysis.TokenStream;
+
+/**
+ * Index time analyzer: {@link PunctationTokenizer} -&gt; {@link IdentifierNGramFilter} -&gt; ASCII folding
+ * -&gt; lower case. Use {@link IdentifierQueryAnalyzer} with the same configuration at query time.
+ */
+public class IdentifierIndexAnalyzer extends IdentifierAnalyzer {
+
+    public IdentifierIndexAnalyzer() {
+        this(IdentifierAnalyzerConfig.DEFAULT);
+    }
+
+
+    public IdentifierIndexAnalyzer(IdentifierAnalyzerConfig config) {
+        super(config);
+    }
+
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        final PunctationTokenizer src = new PunctationTokenizer(IdentifierAttributeFactory.INSTANCE,
+                config.getPunctationTable());
+        src.setSymbolTable(config.getSymbolTable());
+        IdentifierNGramFilter ngrams = new IdentifierNGramFilter(src, config.getMinGramSize(), config.getMaxGramSize(),
+                config.isIncludeIdentifier(), config.getCustomDelimiter());
+        ngrams.setSkipGrams(config.getMaxSkip(), config.getMaxSkipGrams());
+        ngrams.setLengthWeighting(config.isLengthWeighting());
+        ngrams.setProseDetection(config.isProseDetection());
+        ngrams.setGraph(config.isGraph());
+        ngrams.setEmitReversed(config.isEmitReversed());
+        ngrams.setBufferShrinkPolicy(config.getBufferShrinkPolicy());
+        ngrams.setStopSegments(config.getStopSegments());
+        ngrams.setMinSegmentLength(config.getMinSegmentLength());
+        ngrams.setIdentifierTypes(config.getIdentifierTypes());
+        TokenStream tok = normalizeTokens(ngrams);
+        return new TokenStreamComponents(src, tok);
+    }
+}
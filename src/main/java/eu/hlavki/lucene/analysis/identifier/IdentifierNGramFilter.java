@@ -18,14 +18,19 @@ package eu.hlavki.lucene.analysis.identifier;
 import static eu.hlavki.lucene.analysis.identifier.IdentifierFilter.EMPTY_CHAR;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.lucene.analysis.CharArraySet;
 import org.apache.lucene.analysis.TokenFilter;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.ngram.NGramTokenFilter;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
-import org.apache.lucene.analysis.tokenattributes.PackedTokenAttributeImpl;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionLengthAttribute;
+import org.apache.lucene.analysis.tokenattributes.TermFrequencyAttribute;
 import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
-import org.apache.lucene.util.AttributeImpl;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
 
 /**
  * IdentifierNGramFilter tokenizes the input into n-grams delimited by punctation. N-grams are units of
@@ -36,34 +41,115 @@ import org.apache.lucene.util.AttributeImpl;
  * token first, then increasing length (meaning that "192.168.1" will give "192", "192.168", "192.168.1",
  * "168", "168.1", "1").
  *
+ * Every n-gram carries hash of its chars in {@link IdentifierHashAttribute}. It is combined from segment hashes
+ * set by {@link PunctationTokenizer} and prefix hashes of window, so it costs constant time per n-gram.
+ *
+ * When tokenizer has {@link SegmentSymbolTable}, window keeps only ids of known segments instead of copies of
+ * their chars, chars are copied only into emitted n-grams.
+ *
+ * Stop segments and segments shorter than minimum segment length (e.g. "ECLI", "SK", "1") never start or end an
+ * n-gram, they are emitted only inside longer compositions, see {@link #setStopSegments(CharArraySet)}.
+ *
+ * With {@link IdentifierType}s, filter classifies each input by shape of its segments and expands it with n-gram
+ * sizes of matching type, see {@link #setIdentifierTypes(List)}.
  */
-public class IdentifierNGramFilter extends TokenFilter {
+public class IdentifierNGramFilter extends TokenFilter implements Accountable {
 
     public static final int DEFAULT_MIN_NGRAM_SIZE = 3;
     public static final int DEFAULT_MAX_NGRAM_SIZE = 8;
     public static final boolean DEFAULT_INCLUDE_IDENTIFIER = false;
     public static final boolean DEFAULT_IGNORE_DELIMITER = false;
-
-    private final PackedTokenAttributeImpl compositionTermAtt = new PackedTokenAttributeImpl();
+    public static final int DEFAULT_MAX_SKIP = 0;
+    public static final int DEFAULT_MAX_SKIP_GRAMS = 64;
+    public static final boolean DEFAULT_LENGTH_WEIGHTING = false;
+    public static final boolean DEFAULT_PROSE_DETECTION = false;
+    public static final boolean DEFAULT_GRAPH = false;
+    public static final int DEFAULT_MIN_SEGMENT_LENGTH = 1;
+
+    /**
+     * Type of n-grams that skip interior segments
+     */
+    public static final String SKIPGRAM_TYPE = "<SKIPGRAM>";
+
+    /**
+     * Type of segments emitted instead of n-grams when input looks like prose
+     */
+    public static final String PROSE_TYPE = "<PROSE>";
+
+    /**
+     * Number of segments read ahead to detect prose
+     */
+    static final int PROSE_LOOKAHEAD = 8;
+
+    /**
+     * Maximum number of tokens read ahead to classify input
+     */
+    static final int MAX_CLASSIFIED_TOKENS = 64;
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(IdentifierNGramFilter.class)
+            + RamUsageEstimator.shallowSizeOfInstance(LinkedList.class)
+            + RamUsageEstimator.shallowSizeOfInstance(ArrayDeque.class)
+            + RamUsageEstimator.shallowSizeOfInstance(ArrayList.class);
+
+    private IdentifierTokenAttributeImpl compositionTermAtt = new IdentifierTokenAttributeImpl();
     protected final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
     protected final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
     protected final TypeAttribute typeAtt = addAttribute(TypeAttribute.class);
-
-    private final int minGramSize, maxGramSize;
+    protected final TermFrequencyAttribute termFreqAtt = addAttribute(TermFrequencyAttribute.class);
+    private final PositionIncrementAttribute posIncrAtt = addAttribute(PositionIncrementAttribute.class);
+    private final PositionLengthAttribute posLenAtt = addAttribute(PositionLengthAttribute.class);
+    private final IdentifierHashAttribute hashAtt = addAttribute(IdentifierHashAttribute.class);
+    private final SegmentSymbolAttribute symbolAtt = addAttribute(SegmentSymbolAttribute.class);
+
+    private final int baseMinGramSize, baseMaxGramSize;
+    // n-gram sizes of current input, taken from its identifier type
+    private int minGramSize, maxGramSize;
+    private boolean prefixOnly;
     private final boolean includeEdged;
     private final char customDelimiter;
 
     private final LinkedList<Item> items;
-    private final Deque<PackedTokenAttributeImpl> queue;
+    private Deque<IdentifierTokenAttributeImpl> queue;
+    private int peakQueue;
+    private BufferShrinkPolicy bufferShrinkPolicy = BufferShrinkPolicy.NEVER;
     private int count;
     private boolean lastItem;
     private int termCount;
     private int maxSize;
+    private int maxSkip = DEFAULT_MAX_SKIP;
+    private int maxSkipGrams = DEFAULT_MAX_SKIP_GRAMS;
+    private int skipGramCount;
+    private boolean lengthWeighting = DEFAULT_LENGTH_WEIGHTING;
+    private boolean proseDetection = DEFAULT_PROSE_DETECTION;
+    private LongAdder proseCounter = new LongAdder();
+    private final List<IdentifierTokenAttributeImpl> lookahead = new ArrayList<>();
+    private int lookaheadPos;
+    private boolean detected;
+    private boolean prose;
+    private boolean graph = DEFAULT_GRAPH;
+    private CharArraySet stopSegments;
+    private int minSegmentLength = DEFAULT_MIN_SEGMENT_LENGTH;
+    // first and last segment of input are stop segments, so whole identifier is not a regular n-gram
+    private boolean firstStop, lastStop;
+    private List<IdentifierType> identifierTypes = Collections.emptyList();
+    private IdentifierType identifierType;
+    private boolean classified;
+    private char[] shape;
+    private int windowPosition;
+    private int lastPosition = -1;
+    private IdentifierTokenAttributeImpl reversed = new IdentifierTokenAttributeImpl();
+    private boolean emitReversed = IdentifierFilter.DEFAULT_EMIT_REVERSED;
+    private boolean reversedPending;
+    // hash and length of segments and delimiters read so far, excluding leading delimiters
+    private long prefixHash;
+    private int prefixLength;
 
 
     public IdentifierNGramFilter(TokenStream input, int minGramSize, int maxGramSize,
             boolean includeEdged, char customDelimiter) {
         super(input);
+        this.baseMinGramSize = minGramSize;
+        this.baseMaxGramSize = maxGramSize;
         this.minGramSize = minGramSize;
         this.maxGramSize = maxGramSize;
         this.includeEdged = includeEdged;
@@ -78,6 +164,183 @@ public class IdentifierNGramFilter extends TokenFilter {
     }
 
 
+    /**
+     * Enables skip-grams. Skip-gram is composition of segments with one gap of 1 to <code>maxSkip</code>
+     * interior segments (e.g. "ECLI:SK:2015" from "ECLI:SK:USSR:2015"). Number of kept segments is limited by
+     * minimum and maximum n-gram size. Skip-grams are emitted with {@link #SKIPGRAM_TYPE} type.
+     *
+     * @param maxSkip maximum number of skipped interior segments, 0 disables skip-grams
+     * @param maxSkipGrams maximum number of skip-grams emitted for one input
+     * @throws IllegalArgumentException if any argument is negative
+     */
+    public void setSkipGrams(int maxSkip, int maxSkipGrams) {
+        if (maxSkip < 0) {
+            throw new IllegalArgumentException("maxSkip must not be negative");
+        } else if (maxSkipGrams < 0) {
+            throw new IllegalArgumentException("maxSkipGrams must not be negative");
+        }
+        this.maxSkip = maxSkip;
+        this.maxSkipGrams = maxSkipGrams;
+    }
+
+
+    /**
+     * Enables length weighting. Each n-gram carries number of segments it consists of in
+     * {@link TermFrequencyAttribute}, so similarity prefers longer matches without query-time boosting. Field
+     * must be indexed with {@link org.apache.lucene.index.IndexOptions#DOCS_AND_FREQS}, Lucene does not allow
+     * custom term frequencies together with positions. Therefore it cannot be combined with
+     * {@link #setGraph(boolean) graph mode}.
+     *
+     * @param lengthWeighting true to set term frequency to n-gram length
+     */
+    public void setLengthWeighting(boolean lengthWeighting) {
+        this.lengthWeighting = lengthWeighting;
+    }
+
+
+    /**
+     * Enables graph mode. Each n-gram is positioned at its first segment and its
+     * {@link org.apache.lucene.analysis.tokenattributes.PositionLengthAttribute} is number of segments it spans
+     * (including skipped ones). Whole identifier emitted with <code>includeEdged</code> spans all segments and is
+     * emitted first, so filter reads whole input before emitting it. Positions must be indexed, so graph mode
+     * cannot be combined with {@link #setLengthWeighting(boolean) length weighting}.
+     *
+     * @param graph true to emit token graph
+     */
+    public void setGraph(boolean graph) {
+        this.graph = graph;
+    }
+
+
+    /**
+     * Sets stop segments. Stop segment never starts or ends an n-gram or skip-gram, it is emitted only inside
+     * longer compositions (e.g. "ECLI:SK:USSR:2015" with stop segments "ECLI" and "SK" gives "USSR:2015" but not
+     * "ECLI", "SK" or "SK:USSR"). With <code>includeEdged</code>, whole identifier is emitted even when it starts or
+     * ends with stop segment.
+     * Segments are matched before normalization following this filter, so set should ignore case when analyzer
+     * lower cases terms.
+     *
+     * @param stopSegments set of stop segments, null to disable
+     */
+    public void setStopSegments(CharArraySet stopSegments) {
+        this.stopSegments = stopSegments;
+    }
+
+
+    /**
+     * Sets minimum segment length. Shorter segments are treated like stop segments, see
+     * {@link #setStopSegments(CharArraySet)}.
+     *
+     * @param minSegmentLength minimum length of segment which may start or end an n-gram
+     * @throws IllegalArgumentException if minimum length is less than one
+     */
+    public void setMinSegmentLength(int minSegmentLength) {
+        if (minSegmentLength < 1) {
+            throw new IllegalArgumentException("minSegmentLength must be greater than zero");
+        }
+        this.minSegmentLength = minSegmentLength;
+    }
+
+
+    /**
+     * Sets identifier types. Filter reads ahead up to {@value #MAX_CLASSIFIED_TOKENS} tokens of each input,
+     * builds its shape and expands it with n-gram sizes of the first matching type (e.g. prefixes of IP address,
+     * segment windows of ECLI). Input which matches no type or is longer is expanded with n-gram sizes of this
+     * filter.
+     *
+     * @param identifierTypes types in order of priority
+     */
+    public void setIdentifierTypes(List<IdentifierType> identifierTypes) {
+        this.identifierTypes = new ArrayList<>(identifierTypes);
+    }
+
+
+    /**
+     * Returns type of current input, or null when input matches no type.
+     */
+    public IdentifierType getIdentifierType() {
+        return identifierType;
+    }
+
+
+    /**
+     * Enables emission of reversed n-grams prefixed with {@link IdentifierFilter#REVERSED_MARKER}. Each n-gram is
+     * followed by its reversed form at the same position, so suffix searches can be rewritten to prefix
+     * searches, see {@link IdentifierWildcardQueries}.
+     *
+     * @param emitReversed true to emit reversed n-grams too
+     */
+    public void setEmitReversed(boolean emitReversed) {
+        this.emitReversed = emitReversed;
+    }
+
+
+    /**
+     * Enables prose detection. Filter reads ahead up to {@value #PROSE_LOOKAHEAD} segments and when input looks
+     * like free text (enough segments, rare punctation, whitespace between most segments and words of at least
+     * three chars on average), it emits plain segments with {@link #PROSE_TYPE} type instead of n-grams.
+     *
+     * @param proseDetection true to detect prose
+     */
+    public void setProseDetection(boolean proseDetection) {
+        this.proseDetection = proseDetection;
+    }
+
+
+    /**
+     * Sets counter incremented for every input detected as prose. Counter may be shared by several filters.
+     *
+     * @param proseCounter counter of inputs detected as prose
+     */
+    public void setProseCounter(LongAdder proseCounter) {
+        this.proseCounter = Objects.requireNonNull(proseCounter, "proseCounter");
+    }
+
+
+    /**
+     * Returns number of inputs detected as prose.
+     */
+    public long getProseCount() {
+        return proseCounter.sum();
+    }
+
+
+    /**
+     * Sets policy of releasing buffers on reset. Composition buffers longer than
+     * {@link BufferShrinkPolicy#getMaxRetainedChars()} and n-gram queue which held more than
+     * {@link BufferShrinkPolicy#getMaxRetainedTokens()} n-grams are released. Default policy never releases them.
+     *
+     * @param bufferShrinkPolicy policy, may be shared by many filters
+     */
+    public void setBufferShrinkPolicy(BufferShrinkPolicy bufferShrinkPolicy) {
+        this.bufferShrinkPolicy = Objects.requireNonNull(bufferShrinkPolicy, "bufferShrinkPolicy");
+    }
+
+
+    /**
+     * Returns estimated size of buffers of this filter, without input stream and attributes.
+     */
+    @Override
+    public long ramBytesUsed() {
+        long size = BASE_RAM_BYTES_USED + compositionTermAtt.ramBytesUsed() + reversed.ramBytesUsed();
+        if (shape != null) {
+            size += RamUsageEstimator.sizeOf(shape);
+        }
+        for (Item item : items) {
+            size += item.ramBytesUsed();
+        }
+        for (IdentifierTokenAttributeImpl attr : queue) {
+            size += attr.ramBytesUsed();
+        }
+        for (IdentifierTokenAttributeImpl attr : lookahead) {
+            size += attr.ramBytesUsed();
+        }
+        // node of linked list has three references, array deque and list keep one reference per element
+        return size + (long) RamUsageEstimator.NUM_BYTES_OBJECT_REF * (items.size() * 3
+                + Math.max(peakQueue, queue.size()) + lookahead.size());
+    }
+
+
     private boolean overwriteDelimiter() {
         return customDelimiter != EMPTY_CHAR;
     }
@@ -85,57 +348,122 @@ public class IdentifierNGramFilter extends TokenFilter {
 
     @Override
     public final boolean incrementToken() throws IOException {
+        if (reversedPending) {
+            reversedPending = false;
+            reversed.copyTokenTo(termAtt, offsetAtt, typeAtt, posIncrAtt);
+            posIncrAtt.setPositionIncrement(0);
+            posLenAtt.setPositionLength(reversed.getPositionLength());
+            IdentifierFilter.reverse(termAtt);
+            hashAtt.setHash(RollingHash.hash(termAtt.buffer(), 0, termAtt.length()));
+            return true;
+        }
+        boolean read = nextToken();
+        if (read && emitReversed) {
+            reversed.copyTokenFrom(termAtt, offsetAtt, typeAtt, posIncrAtt);
+            reversed.setPositionLength(posLenAtt.getPositionLength());
+            reversedPending = true;
+        }
+        return read;
+    }
+
+
+    private boolean nextToken() throws IOException {
+        if (proseDetection && !detected) {
+            detectProse();
+        }
+        if (prose) {
+            return incrementProse();
+        }
+        if (!classified && !identifierTypes.isEmpty()) {
+            classify();
+        }
         boolean read;
         if (!queue.isEmpty()) {
             markComposition(queue.pop());
             read = true;
         } else {
-            boolean hasDelim = false;
+            boolean skipped;
             do {
-                read = input.incrementToken();
-                if (read) {
-                    boolean punctation = typeAtt.type().equals(PunctationTokenizer.TOKEN_TYPES[PunctationTokenizer.PUNCTATION]);
-                    if (!punctation) {
-                        count++;
-                        termCount++;
-                        items.add(new Item(((PackedTokenAttributeImpl) termAtt).clone()));
-                    } else if (!items.isEmpty() && !overwriteDelimiter()) {
-                        items.getLast().addDelimiter(((PackedTokenAttributeImpl) termAtt).clone());
-                    }
-                    if (!punctation || !overwriteDelimiter()) {
-                        appendComposition(compositionTermAtt, termAtt, offsetAtt);
-                        hasDelim = false;
+                skipped = false;
+                boolean hasDelim = false;
+                do {
+                    read = nextInput();
+                    if (read) {
+                        boolean punctation = isPunctation();
+                        if (!punctation) {
+                            count++;
+                            termCount++;
+                            if (termCount > 1 && overwriteDelimiter()) {
+                                prefixHash = prefixHash * RollingHash.BASE + customDelimiter;
+                                prefixLength++;
+                            }
+                            Item item = newItem();
+                            firstStop = termCount == 1 ? item.stop : firstStop;
+                            lastStop = item.stop;
+                            items.add(item);
+                            appendPrefix();
+                        } else if (!items.isEmpty() && !overwriteDelimiter()) {
+                            items.getLast().addDelimiter(copyToken());
+                            appendPrefix();
+                        }
+                        if (!punctation || !overwriteDelimiter()) {
+                            appendComposition(compositionTermAtt, termAtt, offsetAtt);
+                            hasDelim = false;
+                        }
+                        if (!hasDelim && customDelimiter != EMPTY_CHAR) {
+                            compositionTermAtt.append(customDelimiter);
+                            hasDelim = true;
+                        }
                     }
-                    if (!hasDelim && customDelimiter != EMPTY_CHAR) {
-                        compositionTermAtt.append(customDelimiter);
-                        hasDelim = true;
-                    }
-                }
-            } while (count < maxGramSize && read);
+                } while ((count < maxGramSize + maxSkip || readAll()) && read);
 
-            // remove last delimiter
-            if (hasDelim && compositionTermAtt.length() > 0 && customDelimiter != EMPTY_CHAR) {
-                compositionTermAtt.setLength(compositionTermAtt.length() - 1);
-            }
-
-            maxSize = items.size() > maxSize ? items.size() : maxSize;
-            if (!items.isEmpty()) {
-                Item[] itemArray = items.toArray(new Item[0]);
-                for (int i = minGramSize; i < Math.min(maxGramSize, items.size()) + 1; i++) {
-                    Item[] sub = Arrays.copyOfRange(itemArray, 0, i);
-                    PackedTokenAttributeImpl attr = createComposition(sub);
-                    queue.add(attr);
+                // remove last delimiter
+                if (hasDelim && compositionTermAtt.length() > 0 && customDelimiter != EMPTY_CHAR) {
+                    compositionTermAtt.setLength(compositionTermAtt.length() - 1);
                 }
-                items.removeFirst();
-                count--;
-                if (!queue.isEmpty()) {
-                    markComposition(queue.pop());
-                    read = true;
+
+                maxSize = items.size() > maxSize ? items.size() : maxSize;
+                if (!items.isEmpty()) {
+                    if (readAll()) {
+                        addEdged();
+                    }
+                    Item[] itemArray = items.toArray(new Item[0]);
+                    int windowGrams = prefixOnly && windowPosition > 0 ? 0 : Math.min(maxGramSize, items.size());
+                    for (int i = minGramSize; i < windowGrams + 1; i++) {
+                        if (!isBoundary(itemArray[0]) || !isBoundary(itemArray[i - 1])) {
+                            continue;
+                        }
+                        Item[] sub = Arrays.copyOfRange(itemArray, 0, i);
+                        IdentifierTokenAttributeImpl attr = createComposition(sub);
+                        attr.setHash(gramHash(itemArray, 0, i - 1));
+                        position(attr, i);
+                        queue.add(attr);
+                    }
+                    if (maxSkip > 0 && windowGrams > 0) {
+                        addSkipGrams(itemArray);
+                    }
+                    peakQueue = Math.max(peakQueue, queue.size());
+                    items.removeFirst();
+                    count--;
+                    windowPosition++;
+                    if (!queue.isEmpty()) {
+                        markComposition(queue.pop());
+                        read = true;
+                    } else {
+                        // window starts with stop segment, continue with next one
+                        read = false;
+                        skipped = true;
+                    }
                 }
-            }
+            } while (skipped);
         }
 
-        if (includeEdged && !read && !lastItem && (termCount > maxGramSize || termCount < minGramSize)) {
+        if (includeEdged && !read && !lastItem && isEdged()) {
+            compositionTermAtt.setType(PunctationTokenizer.TOKEN_TYPES[PunctationTokenizer.ALPHANUM]);
+            hashEdged(compositionTermAtt);
+            if (lengthWeighting) {
+                compositionTermAtt.setTermFrequency(termCount);
+            }
             markComposition(compositionTermAtt);
             read = true;
             lastItem = true;
@@ -145,9 +473,243 @@ public class IdentifierNGramFilter extends TokenFilter {
     }
 
 
-    private void markComposition(PackedTokenAttributeImpl compositionTermAtt) {
-        compositionTermAtt.setType(PunctationTokenizer.TOKEN_TYPES[PunctationTokenizer.ALPHANUM]);
-        ((AttributeImpl) compositionTermAtt).copyTo((AttributeImpl) termAtt);
+    /**
+     * Returns true if whole input has to be read in first window to emit whole identifier first in graph mode.
+     */
+    private boolean readAll() {
+        return graph && includeEdged && lastPosition < 0 && !lastItem;
+    }
+
+
+    /**
+     * Returns true if whole identifier is not emitted as regular n-gram, because of its length or stop segment at
+     * its edge.
+     */
+    private boolean isEdged() {
+        return termCount > maxGramSize || termCount < minGramSize || firstStop || lastStop;
+    }
+
+
+    /**
+     * Queues whole identifier in graph mode.
+     */
+    private void addEdged() {
+        lastItem = true;
+        if (isEdged()) {
+            IdentifierTokenAttributeImpl attr = compositionTermAtt.clone();
+            attr.setType(PunctationTokenizer.TOKEN_TYPES[PunctationTokenizer.ALPHANUM]);
+            hashEdged(attr);
+            if (lengthWeighting) {
+                attr.setTermFrequency(termCount);
+            }
+            position(attr, termCount);
+            queue.add(attr);
+        }
+    }
+
+
+    /**
+     * Appends current token to hash of prefix.
+     */
+    private void appendPrefix() {
+        prefixHash = RollingHash.append(prefixHash, hashAtt.getHash(), termAtt.length());
+        prefixLength += termAtt.length();
+    }
+
+
+    /**
+     * Sets hash of whole identifier. Unlike n-grams it contains leading and trailing delimiters too, so it is
+     * hashed once per input from its chars.
+     */
+    private static void hashEdged(IdentifierTokenAttributeImpl attr) {
+        attr.setHash(RollingHash.hash(attr.buffer(), 0, attr.length()));
+    }
+
+
+    /**
+     * Returns true if current segment is stop segment or it is too short.
+     */
+    private boolean isStopSegment() {
+        return termAtt.length() < minSegmentLength
+                || (stopSegments != null && stopSegments.contains(termAtt.buffer(), 0, termAtt.length()));
+    }
+
+
+    /**
+     * Returns true if item may start or end an n-gram.
+     */
+    private static boolean isBoundary(Item item) {
+        return !item.stop;
+    }
+
+
+    /**
+     * Returns hash of segments <code>from</code> to <code>to</code> (inclusive) with delimiters between them.
+     */
+    private static long gramHash(Item[] items, int from, int to) {
+        Item last = items[to];
+        return RollingHash.append(unitHash(items, from, to), last.hash, last.length());
+    }
+
+
+    /**
+     * Returns length of n-gram hashed by {@link #gramHash(Item[], int, int)}.
+     */
+    private static int gramLength(Item[] items, int from, int to) {
+        return items[to].prefixLength - items[from].prefixLength + items[to].length();
+    }
+
+
+    /**
+     * Returns hash of segments <code>from</code> to <code>to</code> (exclusive), each followed by its delimiters.
+     */
+    private static long unitHash(Item[] items, int from, int to) {
+        return RollingHash.range(items[from].prefixHash, items[from].prefixLength, items[to].prefixHash,
+                items[to].prefixLength);
+    }
+
+
+    /**
+     * Sets position increment and length of composition starting at current window in graph mode.
+     */
+    private void position(IdentifierTokenAttributeImpl attr, int positionLength) {
+        if (graph) {
+            attr.setPositionIncrement(windowPosition - lastPosition);
+            attr.setPositionLength(positionLength);
+            lastPosition = windowPosition;
+        }
+    }
+
+
+    private boolean isPunctation() {
+        return typeAtt.type().equals(PunctationTokenizer.TOKEN_TYPES[PunctationTokenizer.PUNCTATION]);
+    }
+
+
+    /**
+     * Returns next input token, replaying tokens read ahead by prose detection first.
+     */
+    private boolean nextInput() throws IOException {
+        if (lookaheadPos < lookahead.size()) {
+            IdentifierTokenAttributeImpl token = lookahead.get(lookaheadPos++);
+            token.copyTokenTo(termAtt, offsetAtt, typeAtt, posIncrAtt);
+            hashAtt.setHash(token.getHash());
+            symbolAtt.setSymbol(token.getSymbolTable(), token.getSymbol());
+            return true;
+        }
+        return input.incrementToken();
+    }
+
+
+    private void detectProse() throws IOException {
+        detected = true;
+        int segments = 0, punctations = 0, gaps = 0, segmentChars = 0;
+        int lastEndOffset = -1;
+        while (segments < PROSE_LOOKAHEAD && input.incrementToken()) {
+            lookahead.add(copyToken());
+            if (isPunctation()) {
+                punctations++;
+            } else {
+                segments++;
+                segmentChars += termAtt.length();
+            }
+            if (lastEndOffset >= 0 && offsetAtt.startOffset() > lastEndOffset) {
+                gaps++;
+            }
+            lastEndOffset = offsetAtt.endOffset();
+        }
+        prose = segments >= PROSE_LOOKAHEAD && punctations * 4 <= segments && gaps * 2 >= segments
+                && segmentChars >= segments * 3;
+        if (prose) {
+            proseCounter.increment();
+        }
+    }
+
+
+    /**
+     * Reads input ahead and takes n-gram sizes of the first identifier type matching its shape.
+     */
+    private void classify() throws IOException {
+        classified = true;
+        while (lookahead.size() <= MAX_CLASSIFIED_TOKENS && input.incrementToken()) {
+            lookahead.add(copyToken());
+        }
+        if (lookahead.size() > MAX_CLASSIFIED_TOKENS) {
+            return;
+        }
+        if (shape == null) {
+            // punctation is single char, so each token adds at most gap and one char
+            shape = new char[2 * MAX_CLASSIFIED_TOKENS];
+        }
+        int length = 0;
+        int lastEndOffset = -1;
+        for (IdentifierTokenAttributeImpl token : lookahead) {
+            if (lastEndOffset >= 0 && token.startOffset() > lastEndOffset) {
+                shape[length++] = IdentifierType.GAP;
+            }
+            if (token.type().equals(PunctationTokenizer.TOKEN_TYPES[PunctationTokenizer.PUNCTATION])) {
+                shape[length++] = token.charAt(0);
+            } else {
+                shape[length++] = IdentifierType.shape(token.buffer(), 0, token.length());
+            }
+            lastEndOffset = token.endOffset();
+        }
+        for (IdentifierType type : identifierTypes) {
+            if (type.matches(shape, 0, length)) {
+                identifierType = type;
+                minGramSize = type.getMinGramSize();
+                maxGramSize = type.getMaxGramSize();
+                prefixOnly = type.isPrefixOnly();
+                return;
+            }
+        }
+    }
+
+
+    private boolean incrementProse() throws IOException {
+        while (nextInput()) {
+            if (!isPunctation()) {
+                typeAtt.setType(PROSE_TYPE);
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private IdentifierTokenAttributeImpl copyToken() {
+        IdentifierTokenAttributeImpl token = new IdentifierTokenAttributeImpl();
+        token.copyTokenFrom(termAtt, offsetAtt, typeAtt, posIncrAtt);
+        token.setHash(hashAtt.getHash());
+        token.setSymbol(symbolAtt.getSymbolTable(), symbolAtt.getSymbol());
+        return token;
+    }
+
+
+    /**
+     * Returns window item of current segment. Chars of segment with symbol are not copied.
+     */
+    private Item newItem() {
+        int symbol = symbolAtt.getSymbol();
+        IdentifierTokenAttributeImpl chars = null;
+        if (symbol == SegmentSymbolAttribute.NO_SYMBOL) {
+            chars = new IdentifierTokenAttributeImpl();
+            chars.copyBuffer(termAtt.buffer(), 0, termAtt.length());
+        }
+        return new Item(chars, symbolAtt.getSymbolTable(), symbol, offsetAtt.startOffset(), offsetAtt.endOffset(),
+                hashAtt.getHash(), isStopSegment(), prefixHash, prefixLength);
+    }
+
+
+    private void markComposition(IdentifierTokenAttributeImpl compositionTermAtt) {
+        compositionTermAtt.copyTokenTo(termAtt, offsetAtt, typeAtt, posIncrAtt);
+        hashAtt.setHash(compositionTermAtt.getHash());
+        if (graph) {
+            posLenAtt.setPositionLength(compositionTermAtt.getPositionLength());
+        }
+        if (lengthWeighting) {
+            termFreqAtt.setTermFrequency(compositionTermAtt.getTermFrequency());
+        }
     }
 
 
@@ -158,19 +720,93 @@ public class IdentifierNGramFilter extends TokenFilter {
         lastItem = false;
         termCount = 0;
         maxSize = 0;
+        skipGramCount = 0;
+        lookahead.clear();
+        lookaheadPos = 0;
+        detected = false;
+        prose = false;
+        reversedPending = false;
+        windowPosition = 0;
+        lastPosition = -1;
+        prefixHash = 0;
+        prefixLength = 0;
+        firstStop = false;
+        lastStop = false;
+        classified = false;
+        identifierType = null;
+        minGramSize = baseMinGramSize;
+        maxGramSize = baseMaxGramSize;
+        prefixOnly = false;
         items.clear();
         queue.clear();
         compositionTermAtt.clear();
+        shrinkBuffers();
+    }
+
+
+    /**
+     * Releases buffers which grew over limits of policy.
+     */
+    private void shrinkBuffers() {
+        if (bufferShrinkPolicy.releaseChars(compositionTermAtt.buffer().length)) {
+            compositionTermAtt = new IdentifierTokenAttributeImpl();
+        }
+        if (bufferShrinkPolicy.releaseChars(reversed.buffer().length)) {
+            reversed = new IdentifierTokenAttributeImpl();
+        }
+        if (bufferShrinkPolicy.releaseTokens(peakQueue)) {
+            queue = new ArrayDeque<>();
+        }
+        peakQueue = 0;
     }
 
 
-    private PackedTokenAttributeImpl createComposition(Item[] items) {
-        PackedTokenAttributeImpl result = new PackedTokenAttributeImpl();
+    /**
+     * Adds skip-grams starting with first item ordered by their end. Left part keeps delimiters of its last
+     * item.
+     */
+    private void addSkipGrams(Item[] itemArray) {
+        int minKept = Math.max(minGramSize, 2);
+        for (int end = 3; end <= Math.min(itemArray.length, maxGramSize + maxSkip); end++) {
+            for (int left = 1; left < end - 1; left++) {
+                for (int gap = 1; gap <= maxSkip && left + gap < end; gap++) {
+                    int right = end - left - gap;
+                    int kept = left + right;
+                    if (kept < minKept || kept > maxGramSize || !isBoundary(itemArray[0])
+                            || !isBoundary(itemArray[end - 1])) {
+                        continue;
+                    }
+                    if (skipGramCount >= maxSkipGrams) {
+                        return;
+                    }
+                    Item[] sub = new Item[kept];
+                    System.arraycopy(itemArray, 0, sub, 0, left);
+                    System.arraycopy(itemArray, left + gap, sub, left, right);
+                    IdentifierTokenAttributeImpl attr = createComposition(sub);
+                    attr.setType(SKIPGRAM_TYPE);
+                    attr.setHash(RollingHash.append(unitHash(itemArray, 0, left),
+                            gramHash(itemArray, left + gap, end - 1), gramLength(itemArray, left + gap, end - 1)));
+                    position(attr, end);
+                    queue.add(attr);
+                    skipGramCount++;
+                }
+            }
+        }
+    }
+
+
+    private IdentifierTokenAttributeImpl createComposition(Item[] items) {
+        IdentifierTokenAttributeImpl result = new IdentifierTokenAttributeImpl();
+        result.setType(PunctationTokenizer.TOKEN_TYPES[PunctationTokenizer.ALPHANUM]);
+        if (lengthWeighting) {
+            result.setTermFrequency(items.length);
+        }
         for (int i = 0; i < items.length; i++) {
             Item item = items[i];
-            appendComposition(result, item.attr, item.attr);
+            item.appendTo(result);
             if (i < items.length - 1) {
-                for (PackedTokenAttributeImpl delim : item.delimiters) {
+                for (int d = 0; d < item.delimiterCount(); d++) {
+                    IdentifierTokenAttributeImpl delim = item.delimiter(d);
                     appendComposition(result, delim, delim);
                 }
                 if (customDelimiter != EMPTY_CHAR) {
@@ -182,7 +818,7 @@ public class IdentifierNGramFilter extends TokenFilter {
     }
 
 
-    private void appendComposition(PackedTokenAttributeImpl target, CharTermAttribute source, OffsetAttribute offsetAtt) {
+    private void appendComposition(IdentifierTokenAttributeImpl target, CharTermAttribute source, OffsetAttribute offsetAtt) {
         // pridaj atribúty do kompozície
         int startOffset = target.length() == 0 ? offsetAtt.startOffset() : target.startOffset();
         target.append(source);
@@ -191,36 +827,94 @@ public class IdentifierNGramFilter extends TokenFilter {
 
     private static class Item {
 
-        private final PackedTokenAttributeImpl attr;
-        private final List<PackedTokenAttributeImpl> delimiters;
+        private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(Item.class);
+
+        // copy of segment chars, null when segment has symbol
+        private final IdentifierTokenAttributeImpl chars;
+        private final SegmentSymbolTable symbolTable;
+        private final int symbol;
+        private final int startOffset, endOffset;
+        private final long hash;
+        // stop segment or too short segment, never starts or ends an n-gram
+        private final boolean stop;
+        // created with the first delimiter
+        private List<IdentifierTokenAttributeImpl> delimiters;
+        // hash and length of input before this segment
+        private final long prefixHash;
+        private final int prefixLength;
+
+
+        Item(IdentifierTokenAttributeImpl chars, SegmentSymbolTable symbolTable, int symbol, int startOffset,
+                int endOffset, long hash, boolean stop, long prefixHash, int prefixLength) {
+            this.chars = chars;
+            this.symbolTable = symbolTable;
+            this.symbol = symbol;
+            this.startOffset = startOffset;
+            this.endOffset = endOffset;
+            this.hash = hash;
+            this.stop = stop;
+            this.prefixHash = prefixHash;
+            this.prefixLength = prefixLength;
+        }
 
 
-        public Item(PackedTokenAttributeImpl attr) {
-            this.attr = attr;
-            delimiters = new ArrayList<>();
+        long ramBytesUsed() {
+            long size = BASE_RAM_BYTES_USED;
+            if (chars != null) {
+                size += chars.ramBytesUsed();
+            }
+            for (int i = 0; i < delimiterCount(); i++) {
+                size += delimiters.get(i).ramBytesUsed() + RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+            }
+            return size;
+        }
+
+
+        /**
+         * Returns length of segment.
+         */
+        int length() {
+            return chars != null ? chars.length() : symbolTable.symbol(symbol).length();
         }
 
 
-        public void addDelimiter(PackedTokenAttributeImpl delimiter) {
+        /**
+         * Appends segment to composition.
+         */
+        void appendTo(IdentifierTokenAttributeImpl target) {
+            int start = target.length() == 0 ? startOffset : target.startOffset();
+            if (chars != null) {
+                target.append(chars);
+            } else {
+                target.append(symbolTable.symbol(symbol));
+            }
+            target.setOffset(start, endOffset);
+        }
+
+
+        void addDelimiter(IdentifierTokenAttributeImpl delimiter) {
+            if (delimiters == null) {
+                delimiters = new ArrayList<>(2);
+            }
             delimiters.add(delimiter);
         }
 
 
-        public PackedTokenAttributeImpl getAttr() {
-            return attr;
+        int delimiterCount() {
+            return delimiters == null ? 0 : delimiters.size();
         }
 
 
-        public List<PackedTokenAttributeImpl> getDelimiters() {
-            return delimiters;
+        IdentifierTokenAttributeImpl delimiter(int index) {
+            return delimiters.get(index);
         }
 
 
         @Override
         public String toString() {
-            StringBuilder sb = new StringBuilder(attr);
-            for (PackedTokenAttributeImpl delim : delimiters) {
-                sb.append(delim);
+            StringBuilder sb = new StringBuilder(chars != null ? chars : symbolTable.symbol(symbol));
+            for (int i = 0; i < delimiterCount(); i++) {
+                sb.append(delimiters.get(i));
             }
             return sb.toString();
         }
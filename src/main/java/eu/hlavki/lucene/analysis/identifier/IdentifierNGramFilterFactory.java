@@ -15,16 +15,64 @@
  */
 package eu.hlavki.lucene.analysis.identifier;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.lucene.analysis.CharArraySet;
 import org.apache.lucene.analysis.TokenFilterFactory;
 import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.util.ResourceLoader;
+import org.apache.lucene.util.ResourceLoaderAware;
 
-public class IdentifierNGramFilterFactory extends TokenFilterFactory {
+/**
+ * Factory of {@link IdentifierNGramFilter}. Stop segments are loaded from comma separated list of word files in
+ * <code>stopSegments</code> argument, one segment per line:
+ * <pre>
+ * &lt;filter class="eu.hlavki.lucene.analysis.identifier.IdentifierNGramFilterFactory"
+ *     stopSegments="stopsegments.txt" ignoreCase="true" minSegmentLength="2"/&gt;
+ * </pre>
+ * {@link IdentifierType}s are listed in <code>identifierTypes</code> argument in order of priority, each with its
+ * shape pattern and optional n-gram sizes:
+ * <pre>
+ * &lt;filter class="eu.hlavki.lucene.analysis.identifier.IdentifierNGramFilterFactory" minGramSize="1"
+ *     identifierTypes="ip,ecli" ip.pattern="D\.D\.D\.D" ip.prefixOnly="true"
+ *     ecli.pattern="A:A:A:D:.*" ecli.minGramSize="2" ecli.maxGramSize="3"/&gt;
+ * </pre>
+ */
+public class IdentifierNGramFilterFactory extends TokenFilterFactory implements ResourceLoaderAware {
+
+    /**
+     * SPI name
+     */
+    public static final String NAME = "identifierNGram";
 
     private final int minGramSize;
     private final int maxGramSize;
     private final boolean includeIdentifier;
     private final char customDelimiter;
+    private final int maxSkip;
+    private final int maxSkipGrams;
+    private final boolean lengthWeighting;
+    private final boolean proseDetection;
+    private final boolean graph;
+    private final boolean emitReversed;
+    private final LongAdder proseCounter = new LongAdder();
+    private final BufferShrinkPolicy bufferShrinkPolicy;
+    private final String stopSegmentFiles;
+    private final boolean ignoreCase;
+    private final int minSegmentLength;
+    private final List<IdentifierType> identifierTypes = new ArrayList<>();
+    private CharArraySet stopSegments;
+
+
+    /**
+     * Default ctor for compatibility with SPI
+     */
+    public IdentifierNGramFilterFactory() {
+        throw defaultCtorException();
+    }
 
 
     /**
@@ -38,14 +86,88 @@ public class IdentifierNGramFilterFactory extends TokenFilterFactory {
         maxGramSize = getInt(args, "maxGramSize", IdentifierNGramFilter.DEFAULT_MAX_NGRAM_SIZE);
         includeIdentifier = getBoolean(args, "includeIdentifier", IdentifierNGramFilter.DEFAULT_INCLUDE_IDENTIFIER);
         customDelimiter = getChar(args, "customDelimiter", IdentifierFilter.EMPTY_CHAR);
+        maxSkip = getInt(args, "maxSkip", IdentifierNGramFilter.DEFAULT_MAX_SKIP);
+        maxSkipGrams = getInt(args, "maxSkipGrams", IdentifierNGramFilter.DEFAULT_MAX_SKIP_GRAMS);
+        lengthWeighting = getBoolean(args, "lengthWeighting", IdentifierNGramFilter.DEFAULT_LENGTH_WEIGHTING);
+        proseDetection = getBoolean(args, "proseDetection", IdentifierNGramFilter.DEFAULT_PROSE_DETECTION);
+        graph = getBoolean(args, "graph", IdentifierNGramFilter.DEFAULT_GRAPH);
+        emitReversed = getBoolean(args, "emitReversed", IdentifierFilter.DEFAULT_EMIT_REVERSED);
+        bufferShrinkPolicy = new BufferShrinkPolicy(getInt(args, "maxRetainedChars", Integer.MAX_VALUE),
+                getInt(args, "maxRetainedTokens", Integer.MAX_VALUE));
+        stopSegmentFiles = get(args, "stopSegments");
+        ignoreCase = getBoolean(args, "ignoreCase", false);
+        minSegmentLength = getInt(args, "minSegmentLength", IdentifierNGramFilter.DEFAULT_MIN_SEGMENT_LENGTH);
+        if (maxSkip < 0) {
+            throw new IllegalArgumentException("maxSkip must not be negative");
+        } else if (maxSkipGrams < 0) {
+            throw new IllegalArgumentException("maxSkipGrams must not be negative");
+        } else if (minSegmentLength < 1) {
+            throw new IllegalArgumentException("minSegmentLength must be greater than zero");
+        } else if (graph && lengthWeighting) {
+            throw new IllegalArgumentException("lengthWeighting cannot be combined with graph");
+        }
+        String types = get(args, "identifierTypes");
+        if (types != null) {
+            for (String name : types.split(",")) {
+                name = name.trim();
+                identifierTypes.add(new IdentifierType(name, require(args, name + ".pattern"),
+                        getInt(args, name + ".minGramSize", minGramSize), getInt(args, name + ".maxGramSize", maxGramSize),
+                        getBoolean(args, name + ".prefixOnly", false)));
+            }
+        }
         if (!args.isEmpty()) {
             throw new IllegalArgumentException("Unknown parameters: " + args);
         }
     }
 
 
+    @Override
+    public void inform(ResourceLoader loader) throws IOException {
+        if (stopSegmentFiles != null) {
+            stopSegments = getWordSet(loader, stopSegmentFiles, ignoreCase);
+        }
+    }
+
+
     @Override
     public IdentifierNGramFilter create(TokenStream input) {
-        return new IdentifierNGramFilter(input, minGramSize, maxGramSize, includeIdentifier, customDelimiter);
+        IdentifierNGramFilter filter = new IdentifierNGramFilter(input, minGramSize, maxGramSize, includeIdentifier,
+                customDelimiter);
+        filter.setSkipGrams(maxSkip, maxSkipGrams);
+        filter.setLengthWeighting(lengthWeighting);
+        filter.setProseDetection(proseDetection);
+        filter.setProseCounter(proseCounter);
+        filter.setGraph(graph);
+        filter.setEmitReversed(emitReversed);
+        filter.setBufferShrinkPolicy(bufferShrinkPolicy);
+        filter.setStopSegments(stopSegments);
+        filter.setMinSegmentLength(minSegmentLength);
+        filter.setIdentifierTypes(identifierTypes);
+        return filter;
+    }
+
+
+    /**
+     * Returns number of inputs detected as prose by all filters created by this factory.
+     */
+    public long getProseCount() {
+        return proseCounter.sum();
+    }
+
+
+    /**
+     * Returns stop segments loaded by {@link #inform(ResourceLoader)}, or null when no file is configured.
+     */
+    public CharArraySet getStopSegments() {
+        return stopSegments;
+    }
+
+
+    /**
+     * Returns buffer policy shared by all filters created by this factory, see
+     * {@link BufferShrinkPolicy#getReleaseCount()}.
+     */
+    public BufferShrinkPolicy getBufferShrinkPolicy() {
+        return bufferShrinkPolicy;
     }
 }
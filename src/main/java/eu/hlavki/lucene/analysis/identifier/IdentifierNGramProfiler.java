@@ -0,0 +1,310 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import static eu.hlavki.lucene.analysis.identifier.IdentifierFilter.EMPTY_CHAR;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.core.LowerCaseFilter;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * Command-line tool that streams sample corpus through {@link PunctationTokenizer} and
+ * {@link IdentifierNGramFilter} under many <code>minGramSize</code>/<code>maxGramSize</code> configurations
+ * in one pass and recommends the cheapest one which still covers given ratio of query identifiers.
+ *
+ * Corpus and query files contain one identifier per line. Query identifier is covered when its
+ * {@link IdentifierFilter} term is among terms emitted by the configuration. Every input is tokenized once
+ * and shared by all configurations with {@link SegmentFanOut}.
+ *
+ * <pre>
+ * java eu.hlavki.lucene.analysis.identifier.IdentifierNGramProfiler --corpus ids.txt [--queries queries.txt]
+ *     [--minGramSize 1-4] [--maxGramSize 2-10] [--includeIdentifier true] [--customDelimiter .] [--coverage 0.95]
+ * </pre>
+ */
+public final class IdentifierNGramProfiler {
+
+    private final SegmentFanOut fanOut = new SegmentFanOut();
+    private final TokenStream queryStream;
+    private final List<Profile> profiles = new ArrayList<>();
+    private final Map<Integer, Integer> segmentCounts = new TreeMap<>();
+    private final Set<String> queries = new HashSet<>();
+    private int documents;
+
+
+    public IdentifierNGramProfiler(int minFrom, int minTo, int maxFrom, int maxTo, boolean includeIdentifier,
+            char customDelimiter) {
+        for (int min = minFrom; min <= minTo; min++) {
+            for (int max = Math.max(min, maxFrom); max <= maxTo; max++) {
+                profiles.add(new Profile(min, max, fold(fanOut.ngrams(min, max, includeIdentifier, customDelimiter))));
+            }
+        }
+        if (profiles.isEmpty()) {
+            throw new IllegalArgumentException("No configuration to profile");
+        }
+        queryStream = fold(fanOut.identifier(customDelimiter));
+    }
+
+
+    private static TokenStream fold(TokenStream stream) {
+        return new LowerCaseFilter(new ASCIIFoldingFilter(stream));
+    }
+
+
+    /**
+     * Analyzes one corpus document with all configurations.
+     *
+     * @param text corpus document
+     * @throws IOException if analysis fails
+     */
+    public void addDocument(String text) throws IOException {
+        fanOut.analyze(text);
+        documents++;
+        segmentCounts.merge(countSegments(), 1, Integer::sum);
+        for (Profile profile : profiles) {
+            profile.consume();
+        }
+    }
+
+
+    /**
+     * Adds query identifier used to compute coverage.
+     *
+     * @param text query identifier
+     * @throws IOException if analysis fails
+     */
+    public void addQuery(String text) throws IOException {
+        fanOut.analyze(text);
+        final CharTermAttribute termAtt = queryStream.getAttribute(CharTermAttribute.class);
+        try (queryStream) {
+            queryStream.reset();
+            while (queryStream.incrementToken()) {
+                if (termAtt.length() > 0) {
+                    queries.add(termAtt.toString());
+                }
+            }
+            queryStream.end();
+        }
+    }
+
+
+    private int countSegments() throws IOException {
+        int count = 0;
+        try (TokenStream segments = fanOut.segments()) {
+            segments.reset();
+            while (segments.incrementToken()) {
+                count++;
+            }
+            segments.end();
+        }
+        return count;
+    }
+
+
+    /**
+     * Writes report of all configurations and recommendation.
+     *
+     * @param out report output
+     * @param coverage required ratio of covered queries, 0 to 1
+     */
+    public void report(PrintStream out, double coverage) {
+        out.printf(Locale.ROOT, "documents: %d, queries: %d%n", documents, queries.size());
+        out.println("segments per document: " + segmentCounts);
+        out.printf(Locale.ROOT, "%4s %4s %12s %12s %14s %10s %12s%n",
+                "min", "max", "terms/doc", "unique", "dict bytes", "coverage", "tokens/s");
+        Profile best = null;
+        for (Profile profile : profiles) {
+            double covered = profile.coverage(queries);
+            out.printf(Locale.ROOT, "%4d %4d %12.2f %12d %14d %10.4f %12.0f%n", profile.minGramSize,
+                    profile.maxGramSize, documents == 0 ? 0d : (double) profile.tokens / documents,
+                    profile.terms.size(), profile.dictionaryBytes(), covered, profile.tokensPerSecond());
+            if (covered >= coverage && (best == null || profile.cheaperThan(best))) {
+                best = profile;
+            }
+        }
+        if (best != null) {
+            out.printf(Locale.ROOT, "recommended: minGramSize=%d maxGramSize=%d%n", best.minGramSize, best.maxGramSize);
+        } else {
+            out.printf(Locale.ROOT, "no configuration reaches coverage %.4f%n", coverage);
+        }
+    }
+
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                usage();
+                return;
+            }
+            params.put(args[i].substring(2), args[i + 1]);
+        }
+        if (!params.containsKey("corpus") || args.length % 2 != 0) {
+            usage();
+            return;
+        }
+        int[] min = range(params.getOrDefault("minGramSize", "1-4"));
+        int[] max = range(params.getOrDefault("maxGramSize", "2-10"));
+        String delimiter = params.getOrDefault("customDelimiter", "");
+        IdentifierNGramProfiler profiler = new IdentifierNGramProfiler(min[0], min[1], max[0], max[1],
+                Boolean.parseBoolean(params.getOrDefault("includeIdentifier", "true")),
+                delimiter.isEmpty() ? EMPTY_CHAR : delimiter.charAt(0));
+
+        Path corpus = Paths.get(params.get("corpus"));
+        Path queries = Paths.get(params.getOrDefault("queries", params.get("corpus")));
+        try (BufferedReader reader = Files.newBufferedReader(corpus, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    profiler.addDocument(line.strip());
+                }
+            }
+        }
+        try (BufferedReader reader = Files.newBufferedReader(queries, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    profiler.addQuery(line.strip());
+                }
+            }
+        }
+        profiler.report(System.out, Double.parseDouble(params.getOrDefault("coverage", "0.95")));
+    }
+
+
+    private static int[] range(String value) {
+        int dash = value.indexOf('-');
+        if (dash < 0) {
+            int v = Integer.parseInt(value);
+            return new int[]{v, v};
+        }
+        return new int[]{Integer.parseInt(value.substring(0, dash)), Integer.parseInt(value.substring(dash + 1))};
+    }
+
+
+    private static void usage() {
+        System.err.println("Usage: IdentifierNGramProfiler --corpus <file> [--queries <file>] [--minGramSize 1-4]"
+                + " [--maxGramSize 2-10] [--includeIdentifier true] [--customDelimiter <char>] [--coverage 0.95]");
+    }
+
+    private static final class Profile {
+
+        private final int minGramSize, maxGramSize;
+        private final TokenStream stream;
+        private final CharTermAttribute termAtt;
+        private final Set<String> terms = new HashSet<>();
+        private long tokens;
+        private long nanos;
+        private long dictionaryBytes = -1;
+
+
+        private Profile(int minGramSize, int maxGramSize, TokenStream stream) {
+            this.minGramSize = minGramSize;
+            this.maxGramSize = maxGramSize;
+            this.stream = stream;
+            this.termAtt = stream.getAttribute(CharTermAttribute.class);
+        }
+
+
+        private void consume() throws IOException {
+            long start = System.nanoTime();
+            try (stream) {
+                stream.reset();
+                while (stream.incrementToken()) {
+                    tokens++;
+                    if (terms.add(termAtt.toString())) {
+                        dictionaryBytes = -1;
+                    }
+                }
+                stream.end();
+            }
+            nanos += System.nanoTime() - start;
+        }
+
+
+        private double coverage(Set<String> queries) {
+            if (queries.isEmpty()) {
+                return 1d;
+            }
+            int covered = 0;
+            for (String query : queries) {
+                if (terms.contains(query)) {
+                    covered++;
+                }
+            }
+            return (double) covered / queries.size();
+        }
+
+
+        /**
+         * Estimates size of prefix-coded terms dictionary: suffix bytes of sorted terms plus one length byte per
+         * term. Estimate is cached until new term is added.
+         */
+        private long dictionaryBytes() {
+            if (dictionaryBytes < 0) {
+                dictionaryBytes = computeDictionaryBytes();
+            }
+            return dictionaryBytes;
+        }
+
+
+        private long computeDictionaryBytes() {
+            BytesRef[] sorted = new BytesRef[terms.size()];
+            int i = 0;
+            for (String term : terms) {
+                sorted[i++] = new BytesRef(term);
+            }
+            Arrays.sort(sorted);
+            long bytes = 0;
+            BytesRef previous = new BytesRef();
+            for (BytesRef term : sorted) {
+                int prefix = Arrays.mismatch(previous.bytes, previous.offset, previous.offset + previous.length,
+                        term.bytes, term.offset, term.offset + term.length);
+                bytes += 1 + term.length - (prefix < 0 ? term.length : prefix);
+                previous = term;
+            }
+            return bytes;
+        }
+
+
+        private double tokensPerSecond() {
+            return nanos == 0 ? 0d : tokens * 1_000_000_000d / nanos;
+        }
+
+
+        private boolean cheaperThan(Profile other) {
+            long bytes = dictionaryBytes(), otherBytes = other.dictionaryBytes();
+            return bytes < otherBytes || (bytes == otherBytes && tokens < other.tokens);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import org.apache.lucene.analysis.TokenStream;
+
+/**
+ * Query time analyzer: {@link PunctationTokenizer} -&gt; {@link IdentifierFilter} -&gt; ASCII folding -&gt; lower
+ * case. Use it for fields indexed by {@link IdentifierIndexAnalyzer} with the same configuration.
+ */
+public class IdentifierQueryAnalyzer extends IdentifierAnalyzer {
+
+    public IdentifierQueryAnalyzer() {
+        this(IdentifierAnalyzerConfig.DEFAULT);
+    }
+
+
+    public IdentifierQueryAnalyzer(IdentifierAnalyzerConfig config) {
+        super(config);
+    }
+
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName) {
+        final PunctationTokenizer src = new PunctationTokenizer(IdentifierAttributeFactory.INSTANCE,
+                config.getPunctationTable());
+        IdentifierFilter identifier = new IdentifierFilter(src, config.getCustomDelimiter());
+        identifier.setBufferShrinkPolicy(config.getBufferShrinkPolicy());
+        TokenStream tok = normalizeTokens(identifier);
+        return new TokenStreamComponents(src, tok);
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.core.LowerCaseFilter;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionLengthAttribute;
+import org.apache.lucene.analysis.tokenattributes.TermToBytesRefAttribute;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * Plans identifier lookups on fields indexed by {@link IdentifierIndexAnalyzer}. Candidate n-grams of query
+ * identifier are enumerated by {@link IdentifierNGramFilter} with the index configuration, each covering a run of
+ * segments. Planner reads their document frequencies, picks the rarest candidate and covers remaining segments
+ * with minimal number of candidates. Terms are returned rarest first, so lookup usually needs one or two terms
+ * instead of wide disjunction:
+ * <pre>
+ * IdentifierQueryPlanner planner = new IdentifierQueryPlanner(config);
+ * Query query = planner.query(reader, "id", "ECLI:SK:USSR:2015:1.US.14.2015.1");
+ * </pre>
+ * Skip-grams are not used. Stop segments covered by no n-gram are not checked. Instance is not thread-safe.
+ */
+public final class IdentifierQueryPlanner {
+
+    private final int minGramSize;
+    private final int maxGramSize;
+    private final PunctationTokenizer tokenizer;
+    private final IdentifierNGramFilter ngrams;
+    private final TokenStream candidates;
+    private final CharSequenceReader reader = new CharSequenceReader();
+
+
+    /**
+     * Creates planner for field indexed with given configuration.
+     */
+    public IdentifierQueryPlanner(IdentifierAnalyzerConfig config) {
+        this.minGramSize = config.getMinGramSize();
+        this.maxGramSize = config.getMaxGramSize();
+        this.tokenizer = new PunctationTokenizer(IdentifierAttributeFactory.INSTANCE, config.getPunctationTable());
+        tokenizer.setSymbolTable(config.getSymbolTable());
+        this.ngrams = new IdentifierNGramFilter(tokenizer, minGramSize, maxGramSize,
+                config.isIncludeIdentifier(), config.getCustomDelimiter());
+        ngrams.setGraph(true);
+        ngrams.setStopSegments(config.getStopSegments());
+        ngrams.setMinSegmentLength(config.getMinSegmentLength());
+        ngrams.setIdentifierTypes(config.getIdentifierTypes());
+        TokenStream stream = ngrams;
+        if (config.isAsciiFolding()) {
+            stream = new ASCIIFoldingFilter(stream);
+        }
+        if (config.isLowerCase()) {
+            stream = new LowerCaseFilter(stream);
+        }
+        this.candidates = stream;
+    }
+
+
+    /**
+     * Returns terms which together identify given identifier, rarest first. Returns empty list when no document
+     * can match.
+     *
+     * @param indexReader reader providing document frequencies
+     * @param field identifier field
+     * @param identifier query identifier
+     * @throws IOException if analysis or reading of document frequencies fails
+     */
+    public List<Term> plan(IndexReader indexReader, String field, CharSequence identifier) throws IOException {
+        List<Candidate> all = enumerate(identifier);
+        // identifier type of query identifier overrides n-gram sizes
+        IdentifierType type = ngrams.getIdentifierType();
+        int min = type != null ? type.getMinGramSize() : minGramSize;
+        int max = type != null ? type.getMaxGramSize() : maxGramSize;
+        int segments = 0;
+        for (Candidate candidate : all) {
+            segments = Math.max(segments, candidate.position + candidate.length);
+            candidate.docFreq = indexReader.docFreq(new Term(field, candidate.term));
+            boolean edged = candidate.length > max || candidate.length < min;
+            if (candidate.docFreq == 0 && !edged) {
+                // regular n-gram of identifier is missing in all documents
+                return Collections.emptyList();
+            }
+        }
+
+        // rarest candidate leads, remaining segments are covered by minimal number of candidates
+        Candidate lead = null;
+        for (Candidate candidate : all) {
+            if (candidate.docFreq > 0 && (lead == null || candidate.docFreq < lead.docFreq
+                    || (candidate.docFreq == lead.docFreq && candidate.length > lead.length))) {
+                lead = candidate;
+            }
+        }
+        if (lead == null) {
+            return Collections.emptyList();
+        }
+        List<Candidate> chosen = new ArrayList<>();
+        chosen.add(lead);
+        BitSet uncovered = new BitSet(segments);
+        uncovered.set(0, segments);
+        uncovered.clear(lead.position, lead.position + lead.length);
+        for (int p = uncovered.nextSetBit(0); p >= 0; p = uncovered.nextSetBit(p)) {
+            Candidate best = null;
+            for (Candidate candidate : all) {
+                if (candidate.docFreq > 0 && candidate.position <= p && candidate.position + candidate.length > p
+                        && (best == null || candidate.end() > best.end()
+                        || (candidate.end() == best.end() && candidate.docFreq < best.docFreq))) {
+                    best = candidate;
+                }
+            }
+            if (best == null) {
+                // stop segment which is not inside any indexed n-gram can't be checked
+                uncovered.clear(p);
+                continue;
+            }
+            chosen.add(best);
+            uncovered.clear(best.position, best.end());
+        }
+        chosen.sort(Comparator.comparingInt(candidate -> candidate.docFreq));
+        List<Term> result = new ArrayList<>(chosen.size());
+        for (Candidate candidate : chosen) {
+            result.add(new Term(field, candidate.term));
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns conjunction of planned terms, see {@link #plan(IndexReader, String, CharSequence)}.
+     */
+    public Query query(IndexReader indexReader, String field, CharSequence identifier) throws IOException {
+        List<Term> terms = plan(indexReader, field, identifier);
+        if (terms.isEmpty()) {
+            return new MatchNoDocsQuery("Identifier is not indexed: " + identifier);
+        } else if (terms.size() == 1) {
+            return new TermQuery(terms.get(0));
+        }
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for (Term term : terms) {
+            builder.add(new TermQuery(term), BooleanClause.Occur.MUST);
+        }
+        return builder.build();
+    }
+
+
+    private List<Candidate> enumerate(CharSequence identifier) throws IOException {
+        TermToBytesRefAttribute termAtt = candidates.getAttribute(TermToBytesRefAttribute.class);
+        PositionIncrementAttribute posIncrAtt = candidates.getAttribute(PositionIncrementAttribute.class);
+        PositionLengthAttribute posLenAtt = candidates.getAttribute(PositionLengthAttribute.class);
+        List<Candidate> result = new ArrayList<>();
+        reader.setText(identifier);
+        tokenizer.setReader(reader);
+        try {
+            candidates.reset();
+            int position = -1;
+            while (candidates.incrementToken()) {
+                position += posIncrAtt.getPositionIncrement();
+                result.add(new Candidate(BytesRef.deepCopyOf(termAtt.getBytesRef()), position,
+                        posLenAtt.getPositionLength()));
+            }
+            candidates.end();
+        } finally {
+            candidates.close();
+        }
+        return result;
+    }
+
+    private static final class Candidate {
+
+        private final BytesRef term;
+        private final int position;
+        private final int length;
+        private int docFreq;
+
+
+        Candidate(BytesRef term, int position, int length) {
+            this.term = term;
+            this.position = position;
+            this.length = length;
+        }
+
+
+        int end() {
+            return position + length;
+        }
+    }
+}
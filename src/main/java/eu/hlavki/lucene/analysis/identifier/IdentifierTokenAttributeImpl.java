@@ -0,0 +1,326 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttributeImpl;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionLengthAttribute;
+import org.apache.lucene.analysis.tokenattributes.TermFrequencyAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.AttributeImpl;
+import org.apache.lucene.util.AttributeReflector;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * Attribute implementation of identifier chains, created by {@link IdentifierAttributeFactory}. Besides full
+ * {@link #copyTo(AttributeImpl)} it supports partial copy of term, offsets, type and position increment, the
+ * only fields tokenizers and filters of this package buffer. Partial copy works with any attribute
+ * implementation and it is plain field copy when both sides are instances of this class. Hash of
+ * {@link IdentifierHashAttribute} and symbol of {@link SegmentSymbolAttribute} are not part of partial copy,
+ * filters maintaining them copy them explicitly.
+ */
+public class IdentifierTokenAttributeImpl extends CharTermAttributeImpl implements TypeAttribute,
+        PositionIncrementAttribute, PositionLengthAttribute, OffsetAttribute, TermFrequencyAttribute,
+        IdentifierHashAttribute, SegmentSymbolAttribute, Accountable {
+
+    private static final long BASE_RAM_BYTES_USED
+            = RamUsageEstimator.shallowSizeOfInstance(IdentifierTokenAttributeImpl.class);
+
+    private int startOffset;
+    private int endOffset;
+    private String type = DEFAULT_TYPE;
+    private int positionIncrement = 1;
+    private int positionLength = 1;
+    private int termFrequency = 1;
+    private long hash;
+    private SegmentSymbolTable symbolTable;
+    private int symbol = NO_SYMBOL;
+
+
+    public IdentifierTokenAttributeImpl() {
+    }
+
+
+    /**
+     * Copies term, offsets, type and position increment from given attributes.
+     */
+    public final void copyTokenFrom(CharTermAttribute termAtt, OffsetAttribute offsetAtt, TypeAttribute typeAtt,
+            PositionIncrementAttribute posIncrAtt) {
+        copyBuffer(termAtt.buffer(), 0, termAtt.length());
+        if (termAtt instanceof IdentifierTokenAttributeImpl && termAtt == offsetAtt && termAtt == typeAtt
+                && termAtt == posIncrAtt) {
+            IdentifierTokenAttributeImpl source = (IdentifierTokenAttributeImpl) termAtt;
+            startOffset = source.startOffset;
+            endOffset = source.endOffset;
+            type = source.type;
+            positionIncrement = source.positionIncrement;
+        } else {
+            startOffset = offsetAtt.startOffset();
+            endOffset = offsetAtt.endOffset();
+            type = typeAtt.type();
+            positionIncrement = posIncrAtt.getPositionIncrement();
+        }
+    }
+
+
+    /**
+     * Copies term, offsets, type and position increment to given attributes.
+     */
+    public final void copyTokenTo(CharTermAttribute termAtt, OffsetAttribute offsetAtt, TypeAttribute typeAtt,
+            PositionIncrementAttribute posIncrAtt) {
+        termAtt.copyBuffer(buffer(), 0, length());
+        if (termAtt instanceof IdentifierTokenAttributeImpl && termAtt == offsetAtt && termAtt == typeAtt
+                && termAtt == posIncrAtt) {
+            IdentifierTokenAttributeImpl target = (IdentifierTokenAttributeImpl) termAtt;
+            target.startOffset = startOffset;
+            target.endOffset = endOffset;
+            target.type = type;
+            target.positionIncrement = positionIncrement;
+        } else {
+            offsetAtt.setOffset(startOffset, endOffset);
+            typeAtt.setType(type);
+            posIncrAtt.setPositionIncrement(positionIncrement);
+        }
+    }
+
+
+    @Override
+    public void setPositionIncrement(int positionIncrement) {
+        if (positionIncrement < 0) {
+            throw new IllegalArgumentException("Increment must be zero or greater: " + positionIncrement);
+        }
+        this.positionIncrement = positionIncrement;
+    }
+
+
+    @Override
+    public int getPositionIncrement() {
+        return positionIncrement;
+    }
+
+
+    @Override
+    public void setPositionLength(int positionLength) {
+        if (positionLength < 1) {
+            throw new IllegalArgumentException("Position length must be 1 or greater: got " + positionLength);
+        }
+        this.positionLength = positionLength;
+    }
+
+
+    @Override
+    public int getPositionLength() {
+        return positionLength;
+    }
+
+
+    @Override
+    public final int startOffset() {
+        return startOffset;
+    }
+
+
+    @Override
+    public final int endOffset() {
+        return endOffset;
+    }
+
+
+    @Override
+    public void setOffset(int startOffset, int endOffset) {
+        if (startOffset < 0 || endOffset < startOffset) {
+            throw new IllegalArgumentException("startOffset must be non-negative, and endOffset must be >= "
+                    + "startOffset; got startOffset=" + startOffset + ",endOffset=" + endOffset);
+        }
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+    }
+
+
+    @Override
+    public final String type() {
+        return type;
+    }
+
+
+    @Override
+    public final void setType(String type) {
+        this.type = type;
+    }
+
+
+    @Override
+    public final void setTermFrequency(int termFrequency) {
+        if (termFrequency < 1) {
+            throw new IllegalArgumentException("Term frequency must be 1 or greater; got " + termFrequency);
+        }
+        this.termFrequency = termFrequency;
+    }
+
+
+    @Override
+    public final int getTermFrequency() {
+        return termFrequency;
+    }
+
+
+    @Override
+    public final long getHash() {
+        return hash;
+    }
+
+
+    @Override
+    public final void setHash(long hash) {
+        this.hash = hash;
+    }
+
+
+    @Override
+    public final int getSymbol() {
+        return symbol;
+    }
+
+
+    @Override
+    public final SegmentSymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+
+    @Override
+    public final void setSymbol(SegmentSymbolTable symbolTable, int symbol) {
+        this.symbolTable = symbol == NO_SYMBOL ? null : symbolTable;
+        this.symbol = symbol;
+    }
+
+
+    /**
+     * Returns size of this instance and its term buffer. Type and symbol table are shared and not counted.
+     */
+    @Override
+    public long ramBytesUsed() {
+        return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(buffer());
+    }
+
+
+    @Override
+    public void clear() {
+        super.clear();
+        positionIncrement = positionLength = termFrequency = 1;
+        startOffset = endOffset = 0;
+        hash = 0;
+        symbolTable = null;
+        symbol = NO_SYMBOL;
+        type = DEFAULT_TYPE;
+    }
+
+
+    @Override
+    public void end() {
+        super.end();
+        positionIncrement = 0;
+    }
+
+
+    @Override
+    public IdentifierTokenAttributeImpl clone() {
+        return (IdentifierTokenAttributeImpl) super.clone();
+    }
+
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj instanceof IdentifierTokenAttributeImpl) {
+            final IdentifierTokenAttributeImpl other = (IdentifierTokenAttributeImpl) obj;
+            return startOffset == other.startOffset
+                    && endOffset == other.endOffset
+                    && positionIncrement == other.positionIncrement
+                    && positionLength == other.positionLength
+                    && termFrequency == other.termFrequency
+                    && hash == other.hash
+                    && symbol == other.symbol
+                    && symbolTable == other.symbolTable
+                    && (type == null ? other.type == null : type.equals(other.type))
+                    && super.equals(obj);
+        }
+        return false;
+    }
+
+
+    @Override
+    public int hashCode() {
+        int code = super.hashCode();
+        code = code * 31 + startOffset;
+        code = code * 31 + endOffset;
+        code = code * 31 + positionIncrement;
+        code = code * 31 + positionLength;
+        code = code * 31 + termFrequency;
+        code = code * 31 + Long.hashCode(hash);
+        code = code * 31 + symbol;
+        if (type != null) {
+            code = code * 31 + type.hashCode();
+        }
+        return code;
+    }
+
+
+    @Override
+    public void copyTo(AttributeImpl target) {
+        if (target instanceof IdentifierTokenAttributeImpl) {
+            final IdentifierTokenAttributeImpl to = (IdentifierTokenAttributeImpl) target;
+            to.copyBuffer(buffer(), 0, length());
+            to.startOffset = startOffset;
+            to.endOffset = endOffset;
+            to.type = type;
+            to.positionIncrement = positionIncrement;
+            to.positionLength = positionLength;
+            to.termFrequency = termFrequency;
+            to.hash = hash;
+            to.symbolTable = symbolTable;
+            to.symbol = symbol;
+        } else {
+            super.copyTo(target);
+            ((OffsetAttribute) target).setOffset(startOffset, endOffset);
+            ((PositionIncrementAttribute) target).setPositionIncrement(positionIncrement);
+            ((PositionLengthAttribute) target).setPositionLength(positionLength);
+            ((TypeAttribute) target).setType(type);
+            ((TermFrequencyAttribute) target).setTermFrequency(termFrequency);
+            ((IdentifierHashAttribute) target).setHash(hash);
+            ((SegmentSymbolAttribute) target).setSymbol(symbolTable, symbol);
+        }
+    }
+
+
+    @Override
+    public void reflectWith(AttributeReflector reflector) {
+        super.reflectWith(reflector);
+        reflector.reflect(OffsetAttribute.class, "startOffset", startOffset);
+        reflector.reflect(OffsetAttribute.class, "endOffset", endOffset);
+        reflector.reflect(PositionIncrementAttribute.class, "positionIncrement", positionIncrement);
+        reflector.reflect(PositionLengthAttribute.class, "positionLength", positionLength);
+        reflector.reflect(TypeAttribute.class, "type", type);
+        reflector.reflect(TermFrequencyAttribute.class, "termFrequency", termFrequency);
+        reflector.reflect(IdentifierHashAttribute.class, "hash", hash);
+        reflector.reflect(SegmentSymbolAttribute.class, "symbol", symbol);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+
+/**
+ * Publishes analysis of identifier inputs as {@link Flow.Publisher} of {@link TokenBatch}es, one batch per input:
+ * <pre>
+ * Flow.Publisher&lt;TokenBatch&gt; publisher = new IdentifierTokenPublisher(analyzer, "id", inputs, executor);
+ * publisher.subscribe(subscriber);
+ * </pre>
+ * Inputs are analyzed lazily, only when subscriber signals demand, so at most one batch is held per subscription
+ * and no thread blocks waiting for subscriber. Analysis runs on given executor, analyzer reuses its chains per
+ * thread and each subscription reuses its reader and batch, see {@link TokenBatch}. Every subscription iterates
+ * inputs from the beginning.
+ */
+public final class IdentifierTokenPublisher implements Flow.Publisher<TokenBatch> {
+
+    private final Analyzer analyzer;
+    private final String fieldName;
+    private final Iterable<? extends CharSequence> inputs;
+    private final Executor executor;
+
+
+    /**
+     * Creates publisher which analyzes inputs on the thread requesting them.
+     */
+    public IdentifierTokenPublisher(Analyzer analyzer, String fieldName, Iterable<? extends CharSequence> inputs) {
+        this(analyzer, fieldName, inputs, Runnable::run);
+    }
+
+
+    /**
+     * Creates publisher which analyzes inputs on given executor.
+     */
+    public IdentifierTokenPublisher(Analyzer analyzer, String fieldName, Iterable<? extends CharSequence> inputs,
+            Executor executor) {
+        this.analyzer = Objects.requireNonNull(analyzer, "analyzer");
+        this.fieldName = Objects.requireNonNull(fieldName, "fieldName");
+        this.inputs = Objects.requireNonNull(inputs, "inputs");
+        this.executor = Objects.requireNonNull(executor, "executor");
+    }
+
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super TokenBatch> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        subscriber.onSubscribe(new BatchSubscription(subscriber));
+    }
+
+    private final class BatchSubscription implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super TokenBatch> subscriber;
+        private final CharSequenceReader reader = new CharSequenceReader();
+        private final TokenBatch batch = new TokenBatch();
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+        private Iterator<? extends CharSequence> iterator;
+        private boolean done;
+        private long input;
+
+
+        BatchSubscription(Flow.Subscriber<? super TokenBatch> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Requested number of batches must be positive: " + n);
+            } else {
+                demand.getAndAccumulate(n, (current, add) -> {
+                    long sum = current + add;
+                    return sum < 0 ? Long.MAX_VALUE : sum;
+                });
+            }
+            schedule();
+        }
+
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RuntimeException e) {
+                    cancelled = true;
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                if (!done) {
+                    drain();
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+
+        private void drain() {
+            long requested = demand.get();
+            long emitted = 0;
+            try {
+                if (iterator == null) {
+                    iterator = inputs.iterator();
+                }
+                while (!cancelled && error == null && emitted != requested && iterator.hasNext()) {
+                    analyze(iterator.next());
+                    subscriber.onNext(batch);
+                    emitted++;
+                }
+                if (cancelled) {
+                    done = true;
+                } else if (error != null) {
+                    done = true;
+                    subscriber.onError(error);
+                } else if (!iterator.hasNext()) {
+                    done = true;
+                    subscriber.onComplete();
+                }
+            } catch (IOException | RuntimeException e) {
+                done = true;
+                cancelled = true;
+                subscriber.onError(e);
+            }
+            if (emitted != 0 && requested != Long.MAX_VALUE) {
+                demand.addAndGet(-emitted);
+            }
+        }
+
+
+        private void analyze(CharSequence text) throws IOException {
+            batch.clear(input++);
+            reader.setText(text);
+            try (TokenStream stream = analyzer.tokenStream(fieldName, reader)) {
+                CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+                OffsetAttribute offsetAtt = stream.addAttribute(OffsetAttribute.class);
+                PositionIncrementAttribute posIncrAtt = stream.addAttribute(PositionIncrementAttribute.class);
+                TypeAttribute typeAtt = stream.addAttribute(TypeAttribute.class);
+                stream.reset();
+                while (stream.incrementToken()) {
+                    batch.add(termAtt, offsetAtt, posIncrAtt.getPositionIncrement(), typeAtt.type());
+                }
+                stream.end();
+            }
+        }
+    }
+}
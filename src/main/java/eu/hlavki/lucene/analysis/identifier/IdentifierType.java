@@ -0,0 +1,142 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import java.util.Objects;
+import org.apache.lucene.util.automaton.CharacterRunAutomaton;
+import org.apache.lucene.util.automaton.RegExp;
+
+/**
+ * Identifier family recognized by its segment pattern, with its own n-gram expansion. Pattern is
+ * {@link RegExp} over shape of input, where each segment is replaced by {@link #LETTERS}, {@link #DIGITS} or
+ * {@link #MIXED}, punctation is kept and whitespace between tokens is replaced by {@link #GAP}. E.g. shape of
+ * "ECLI:SK:USSR:2015:1.US.14.2015.1" is <code>A:A:A:D:D.A.D.D.D</code> and shape of "4Tdo 12/2015" is
+ * <code>M D/D</code>. Pattern is compiled to automaton once, so classification is one pass over the shape.
+ *
+ * <pre>
+ * IdentifierType ip = new IdentifierType("ip", "D\\.D\\.D\\.D", 1, 4, true);
+ * IdentifierType ecli = new IdentifierType("ecli", "A:A:A:D:.*", 2, 3, false);
+ * </pre>
+ */
+public final class IdentifierType {
+
+    /**
+     * Shape of segment of letters
+     */
+    public static final char LETTERS = 'A';
+
+    /**
+     * Shape of segment of digits
+     */
+    public static final char DIGITS = 'D';
+
+    /**
+     * Shape of segment of letters and digits
+     */
+    public static final char MIXED = 'M';
+
+    /**
+     * Shape of whitespace between tokens
+     */
+    public static final char GAP = ' ';
+
+    private final String name;
+    private final String pattern;
+    private final CharacterRunAutomaton automaton;
+    private final int minGramSize;
+    private final int maxGramSize;
+    private final boolean prefixOnly;
+
+
+    /**
+     * Creates identifier type.
+     *
+     * @param name name of type
+     * @param pattern regular expression of shape, see {@link RegExp}
+     * @param minGramSize minimum number of segments of n-gram
+     * @param maxGramSize maximum number of segments of n-gram
+     * @param prefixOnly true to emit only n-grams starting with the first segment
+     * @throws IllegalArgumentException if pattern is invalid or n-gram sizes are out of range
+     */
+    public IdentifierType(String name, String pattern, int minGramSize, int maxGramSize, boolean prefixOnly) {
+        if (minGramSize < 1) {
+            throw new IllegalArgumentException("minGramSize must be greater than zero");
+        } else if (maxGramSize < minGramSize) {
+            throw new IllegalArgumentException("maxGramSize must not be less than minGramSize");
+        }
+        this.name = Objects.requireNonNull(name, "name");
+        this.pattern = Objects.requireNonNull(pattern, "pattern");
+        this.automaton = new CharacterRunAutomaton(new RegExp(pattern).toAutomaton());
+        this.minGramSize = minGramSize;
+        this.maxGramSize = maxGramSize;
+        this.prefixOnly = prefixOnly;
+    }
+
+
+    public String getName() {
+        return name;
+    }
+
+
+    public String getPattern() {
+        return pattern;
+    }
+
+
+    public int getMinGramSize() {
+        return minGramSize;
+    }
+
+
+    public int getMaxGramSize() {
+        return maxGramSize;
+    }
+
+
+    public boolean isPrefixOnly() {
+        return prefixOnly;
+    }
+
+
+    /**
+     * Returns true if shape matches pattern of this type.
+     */
+    public boolean matches(char[] shape, int offset, int length) {
+        return automaton.run(shape, offset, length);
+    }
+
+
+    /**
+     * Returns shape of segment.
+     */
+    static char shape(char[] buffer, int offset, int length) {
+        boolean letters = false, digits = false;
+        for (int i = offset; i < offset + length; i++) {
+            if (Character.isDigit(buffer[i])) {
+                digits = true;
+            } else {
+                letters = true;
+            }
+        }
+        return letters && digits ? MIXED : digits ? DIGITS : LETTERS;
+    }
+
+
+    @Override
+    public String toString() {
+        return name + "[" + pattern + "]";
+    }
+}
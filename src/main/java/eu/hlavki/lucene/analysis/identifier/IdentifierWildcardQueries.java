@@ -0,0 +1,85 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.reverse.ReverseStringFilter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.WildcardQuery;
+
+/**
+ * Creates wildcard queries for fields with reversed terms (see {@link IdentifierFilter#setEmitReversed(boolean)}
+ * and {@link IdentifierNGramFilter#setEmitReversed(boolean)}). Pattern with leading wildcard is reversed and
+ * prefixed with {@link IdentifierFilter#REVERSED_MARKER}, so e.g. "*14.2015.1" becomes prefix query instead of scan
+ * of whole terms dictionary.
+ */
+public final class IdentifierWildcardQueries {
+
+    private IdentifierWildcardQueries() {
+    }
+
+
+    /**
+     * Returns query for wildcard pattern. Chars ignored by {@link PunctationTable} of the field (e.g. whitespace) are
+     * removed from pattern and pattern is normalized by analyzer of the field, so it matches indexed compositions
+     * without custom delimiter. Escaping of wildcard chars is not supported.
+     *
+     * @param analyzer analyzer of the field with reversed terms
+     * @param field field name
+     * @param pattern wildcard pattern with <code>*</code> and <code>?</code>
+     */
+    public static Query wildcard(Analyzer analyzer, String field, String pattern) {
+        PunctationTable table = analyzer instanceof IdentifierAnalyzer
+                ? ((IdentifierAnalyzer) analyzer).getConfig().getPunctationTable() : PunctationTable.DEFAULT;
+        String normalized = analyzer.normalize(field, stripIgnored(pattern, table)).utf8ToString();
+        if (normalized.isEmpty() || !isWildcard(normalized.charAt(0))
+                || isWildcard(normalized.charAt(normalized.length() - 1))) {
+            return prefixOrWildcard(field, normalized);
+        }
+        return prefixOrWildcard(field, IdentifierFilter.REVERSED_MARKER + ReverseStringFilter.reverse(normalized));
+    }
+
+
+    private static Query prefixOrWildcard(String field, String pattern) {
+        int last = pattern.length() - 1;
+        if (last >= 0 && pattern.charAt(last) == WildcardQuery.WILDCARD_STRING) {
+            boolean literal = true;
+            for (int i = 0; i < last && literal; i++) {
+                literal = !isWildcard(pattern.charAt(i));
+            }
+            if (literal) {
+                return new PrefixQuery(new Term(field, pattern.substring(0, last)));
+            }
+        }
+        return new WildcardQuery(new Term(field, pattern));
+    }
+
+
+    private static String stripIgnored(String pattern, PunctationTable table) {
+        StringBuilder sb = new StringBuilder(pattern.length());
+        pattern.codePoints()
+                .filter(c -> isWildcard((char) c) || table.classify(c) != PunctationScanner.OTHER)
+                .forEach(sb::appendCodePoint);
+        return sb.toString();
+    }
+
+
+    private static boolean isWildcard(char c) {
+        return c == WildcardQuery.WILDCARD_STRING || c == WildcardQuery.WILDCARD_CHAR;
+    }
+}
@@ -21,6 +21,20 @@ import org.apache.lucene.analysis.TokenStream;
 
 public class PunctationFilterFactory extends TokenFilterFactory {
 
+    /**
+     * SPI name
+     */
+    public static final String NAME = "punctation";
+
+
+    /**
+     * Default ctor for compatibility with SPI
+     */
+    public PunctationFilterFactory() {
+        throw defaultCtorException();
+    }
+
+
     /**
      * Creates a new CodeFilterFactory
      *
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+/**
+ * Character classification of ASCII input, taken from {@link PunctationTable#DEFAULT} which is equivalent to
+ * PunctationTokenizerImpl.jflex grammar for chars below 128. {@link PunctationTokenizer} uses it to scan in-place
+ * ASCII input without JFlex scanner.
+ *
+ * This is scalar implementation. Multi-release jar contains Java 17 variant of this class in
+ * <code>META-INF/versions/17</code> which uses Vector API when <code>jdk.incubator.vector</code> module is
+ * available.
+ */
+final class PunctationScanner {
+
+    static final byte OTHER = 0;
+    static final byte ALPHANUM = 1;
+    static final byte PUNCTATION = 2;
+
+    // shared with PunctationTable, so scanners and tokenizer with default table classify alike
+    private static final byte[] CLASSES = PunctationTable.DEFAULT.asciiClasses();
+
+
+    private PunctationScanner() {
+    }
+
+
+    /**
+     * Returns true if scanning is vectorized.
+     */
+    static boolean isVectorized() {
+        return false;
+    }
+
+
+    /**
+     * Returns class of ASCII char.
+     */
+    static byte classify(char c) {
+        return CLASSES[c];
+    }
+
+
+    /**
+     * Returns true if all chars in range are ASCII.
+     */
+    static boolean isAscii(char[] buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] >= 128) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Returns index of first char in range which is not ASCII letter or digit, or <code>to</code>.
+     */
+    static int skipAlphanum(char[] buffer, int from, int to) {
+        int i = from;
+        while (i < to && buffer[i] < 128 && CLASSES[buffer[i]] == ALPHANUM) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import java.util.Arrays;
+
+/**
+ * Immutable character classification of {@link PunctationTokenizer}. Runs of letters and digits form segments,
+ * punctation chars are emitted as single-char tokens and other chars are ignored. Punctation and ignorable chars
+ * override classification of letters and digits, so e.g. <code>"="</code> can be made punctation without forking
+ * PunctationTokenizerImpl.jflex grammar.
+ *
+ * ASCII classes are kept in 128-byte table, non-ASCII overrides in sorted arrays, remaining code points are
+ * classified by {@link Character#isLetterOrDigit(int)}. One table is shared by all tokenizers of a factory.
+ *
+ * <pre>
+ * PunctationTable table = PunctationTable.of(PunctationTable.DEFAULT_PUNCTATION + "=~", "");
+ * </pre>
+ */
+public final class PunctationTable {
+
+    /**
+     * Punctation of PunctationTokenizerImpl.jflex grammar
+     */
+    public static final String DEFAULT_PUNCTATION = ".,_-/;:|+!@#$%^&*(){}[]<>?";
+
+    /**
+     * Table of PunctationTokenizerImpl.jflex grammar. Tokenizer with this table scans with JFlex scanner, or with
+     * {@link PunctationScanner} for in-place ASCII input.
+     */
+    public static final PunctationTable DEFAULT = new PunctationTable(DEFAULT_PUNCTATION, "");
+
+    private final String punctation;
+    private final String ignorable;
+    private final byte[] ascii = new byte[128];
+    private final int[] otherPunctation;
+    private final int[] otherIgnorable;
+
+
+    private PunctationTable(String punctation, String ignorable) {
+        this.punctation = punctation;
+        this.ignorable = ignorable;
+        for (int c = 0; c < ascii.length; c++) {
+            ascii[c] = Character.isLetterOrDigit(c) ? PunctationScanner.ALPHANUM : PunctationScanner.OTHER;
+        }
+        otherPunctation = override(punctation, PunctationScanner.PUNCTATION);
+        otherIgnorable = override(ignorable, PunctationScanner.OTHER);
+    }
+
+
+    /**
+     * Returns table with given punctation and ignorable chars.
+     *
+     * @param punctation chars emitted as punctation tokens
+     * @param ignorable chars ignored even if they are letters or digits
+     * @throws IllegalArgumentException if a char is both punctation and ignorable
+     */
+    public static PunctationTable of(String punctation, String ignorable) {
+        if (punctation.codePoints().anyMatch(c -> ignorable.indexOf(c) >= 0)) {
+            throw new IllegalArgumentException("Punctation and ignorable chars must be disjoint");
+        }
+        if (DEFAULT_PUNCTATION.equals(punctation) && ignorable.isEmpty()) {
+            return DEFAULT;
+        }
+        return new PunctationTable(punctation, ignorable);
+    }
+
+
+    /**
+     * Sets class of ASCII chars and returns sorted non-ASCII code points.
+     */
+    private int[] override(String chars, byte charClass) {
+        return chars.codePoints().filter(c -> {
+            if (c < ascii.length) {
+                ascii[c] = charClass;
+                return false;
+            }
+            return true;
+        }).sorted().distinct().toArray();
+    }
+
+
+    /**
+     * Returns copy of classes of ASCII chars, indexed by char.
+     */
+    byte[] asciiClasses() {
+        return ascii.clone();
+    }
+
+
+    public String getPunctation() {
+        return punctation;
+    }
+
+
+    public String getIgnorable() {
+        return ignorable;
+    }
+
+
+    /**
+     * Returns class of code point, one of {@link PunctationScanner} constants.
+     */
+    byte classify(int c) {
+        if (c < ascii.length) {
+            return ascii[c];
+        } else if (otherIgnorable.length > 0 && Arrays.binarySearch(otherIgnorable, c) >= 0) {
+            return PunctationScanner.OTHER;
+        } else if (otherPunctation.length > 0 && Arrays.binarySearch(otherPunctation, c) >= 0) {
+            return PunctationScanner.PUNCTATION;
+        }
+        return Character.isLetterOrDigit(c) ? PunctationScanner.ALPHANUM : PunctationScanner.OTHER;
+    }
+
+
+    @Override
+    public String toString() {
+        return "PunctationTable{punctation=" + punctation + ", ignorable=" + ignorable + "}";
+    }
+}
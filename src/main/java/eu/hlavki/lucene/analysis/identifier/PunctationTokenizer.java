@@ -16,6 +16,8 @@ package eu.hlavki.lucene.analysis.identifier;
  * limitations under the License.
  */
 import java.io.IOException;
+import java.util.Objects;
+import org.apache.lucene.analysis.CharacterUtils;
 import org.apache.lucene.analysis.Tokenizer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.analysis.standard.StandardTokenizer;
@@ -24,7 +26,9 @@ import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
 import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
 import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.AttributeFactory;
+import org.apache.lucene.util.RamUsageEstimator;
 
 /**
  * A grammar-based tokenizer constructed with JFlex
@@ -47,11 +51,18 @@ import org.apache.lucene.util.AttributeFactory;
  *
  * IdentifierTokenizer was named StandardTokenizer in Lucene versions prior to 3.1. As of 3.1,
  * {@link StandardTokenizer} implements Unicode text segmentation, as specified by UAX#29.
+ *
+ * <p>
+ * Tokenizer created with custom {@link PunctationTable} does not use JFlex scanner, it classifies input with the
+ * table in a simple scanning loop.
  */
-public final class PunctationTokenizer extends Tokenizer {
+public final class PunctationTokenizer extends Tokenizer implements Accountable {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(PunctationTokenizer.class);
 
     /**
-     * A private instance of the JFlex-constructed scanner
+     * A private instance of the JFlex-constructed scanner, created on first use so in-place ASCII input never
+     * pays for initialization of its character tables
      */
     private PunctationTokenizerImpl scanner;
 
@@ -73,8 +84,28 @@ public final class PunctationTokenizer extends Tokenizer {
 
     private int skippedPositions;
 
+    /**
+     * In-place ASCII input scanned by {@link PunctationScanner} instead of JFlex scanner, null otherwise
+     */
+    private char[] asciiBuffer;
+    private int asciiStart, asciiPos, asciiEnd;
+
     private int maxTokenLength = StandardAnalyzer.DEFAULT_MAX_TOKEN_LENGTH;
 
+    private SegmentSymbolTable symbolTable;
+
+    private static final int IO_BUFFER_SIZE = 4096;
+
+    /**
+     * Classification of custom table scanning, null when JFlex scanner is used
+     */
+    private final PunctationTable table;
+    private CharacterUtils.CharacterBuffer ioBuffer;
+    private char[] tableBuffer;
+    // offset of tableBuffer[0] in input, tableBuffer is input itself when scanned in place
+    private int tableOffset, tablePos, tableEnd;
+    private boolean tableInPlace;
+
 
     /**
      * Set the max allowed token length. Tokens larger than this will be chopped
@@ -92,10 +123,8 @@ public final class PunctationTokenizer extends Tokenizer {
         } else if (length > MAX_TOKEN_LENGTH_LIMIT) {
             throw new IllegalArgumentException("maxTokenLength may not exceed " + MAX_TOKEN_LENGTH_LIMIT);
         }
-        if (length != maxTokenLength) {
-            maxTokenLength = length;
-            scanner.setBufferSize(length);
-        }
+        // too long tokens are skipped, scanner buffer does not depend on this limit
+        maxTokenLength = length;
     }
 
 
@@ -110,13 +139,47 @@ public final class PunctationTokenizer extends Tokenizer {
 
 
     /**
-     * Creates a new instance of the {@link PunctationTokenizer}. Attaches
-     * the <code>input</code> to the newly created JFlex scanner.
+     * Sets table of segment symbols. Every emitted segment is offered to the table, see
+     * {@link SegmentSymbolTable#offer(char[], int, int, long)}, and its id is set to {@link SegmentSymbolAttribute}.
+     * Punctation gets no id. Table may be shared by many tokenizers.
+     *
+     * @param symbolTable table of symbols, null to disable symbols
+     */
+    public void setSymbolTable(SegmentSymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+
+
+    public SegmentSymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+
+    /**
+     * Returns estimated size of buffers of this tokenizer, without attributes and scanner tables shared by all
+     * instances. In-place input is not counted.
+     */
+    @Override
+    public long ramBytesUsed() {
+        long size = BASE_RAM_BYTES_USED;
+        if (scanner != null) {
+            size += RamUsageEstimator.shallowSizeOf(scanner) + (long) Character.BYTES * scanner.bufferLength();
+        }
+        if (ioBuffer != null) {
+            size += RamUsageEstimator.sizeOf(ioBuffer.getBuffer());
+        }
+        return size;
+    }
+
+
+    /**
+     * Creates a new instance of the {@link PunctationTokenizer} with {@link IdentifierAttributeFactory}. JFlex
+     * scanner is created on the first reset that needs it.
      *
      * See http://issues.apache.org/jira/browse/LUCENE-1068
      */
     public PunctationTokenizer() {
-        init();
+        this(IdentifierAttributeFactory.INSTANCE);
     }
 
 
@@ -124,21 +187,37 @@ public final class PunctationTokenizer extends Tokenizer {
      * Creates a new PunctationTokenizer with a given {@link org.apache.lucene.util.AttributeFactory}
      */
     public PunctationTokenizer(AttributeFactory factory) {
+        this(factory, PunctationTable.DEFAULT);
+    }
+
+
+    /**
+     * Creates a new PunctationTokenizer with a given {@link org.apache.lucene.util.AttributeFactory} and
+     * classification table. Tokenizer with {@link PunctationTable#DEFAULT} table is equivalent to
+     * {@link #PunctationTokenizer(AttributeFactory)}.
+     */
+    public PunctationTokenizer(AttributeFactory factory, PunctationTable table) {
         super(factory);
-        init();
+        Objects.requireNonNull(table, "table");
+        this.table = table == PunctationTable.DEFAULT ? null : table;
     }
 
 
-    private void init() {
-        this.scanner = new PunctationTokenizerImpl(input);
+    private PunctationTokenizerImpl scanner() {
+        if (scanner == null) {
+            scanner = new PunctationTokenizerImpl(input);
+        }
+        return scanner;
     }
 
-    // this tokenizer generates three attributes:
-    // term offset, positionIncrement and type
+    // this tokenizer generates six attributes:
+    // term, offset, positionIncrement, type, hash and symbol
     private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
     private final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
     private final PositionIncrementAttribute posIncrAtt = addAttribute(PositionIncrementAttribute.class);
     private final TypeAttribute typeAtt = addAttribute(TypeAttribute.class);
+    private final IdentifierHashAttribute hashAtt = addAttribute(IdentifierHashAttribute.class);
+    private final SegmentSymbolAttribute symbolAtt = addAttribute(SegmentSymbolAttribute.class);
 
 
     /*
@@ -150,6 +229,11 @@ public final class PunctationTokenizer extends Tokenizer {
     public final boolean incrementToken() throws IOException {
         clearAttributes();
         skippedPositions = 0;
+        if (table != null) {
+            return incrementTableToken();
+        } else if (asciiBuffer != null) {
+            return incrementAsciiToken();
+        }
 
         while (true) {
             int tokenType = scanner.getNextToken();
@@ -161,6 +245,7 @@ public final class PunctationTokenizer extends Tokenizer {
             if (scanner.yylength() <= maxTokenLength) {
                 posIncrAtt.setPositionIncrement(skippedPositions + 1);
                 scanner.getText(termAtt);
+                hashTerm(termAtt.buffer(), 0, termAtt.length(), tokenType);
                 final int start = scanner.yychar();
                 offsetAtt.setOffset(correctOffset(start), correctOffset(start + termAtt.length()));
                 typeAtt.setType(PunctationTokenizer.TOKEN_TYPES[tokenType]);
@@ -173,11 +258,137 @@ public final class PunctationTokenizer extends Tokenizer {
     }
 
 
+    /**
+     * Same as {@link #incrementToken()} for ASCII input, where the grammar reduces to runs of letters and digits
+     * and single punctation chars.
+     */
+    private boolean incrementAsciiToken() {
+        while (asciiPos < asciiEnd) {
+            final int start = asciiPos;
+            final int tokenType;
+            byte charClass = PunctationScanner.classify(asciiBuffer[start]);
+            if (charClass == PunctationScanner.ALPHANUM) {
+                asciiPos = PunctationScanner.skipAlphanum(asciiBuffer, start + 1, asciiEnd);
+                tokenType = ALPHANUM;
+            } else if (charClass == PunctationScanner.PUNCTATION) {
+                asciiPos++;
+                tokenType = PUNCTATION;
+            } else {
+                asciiPos++;
+                continue;
+            }
+
+            final int length = asciiPos - start;
+            if (length <= maxTokenLength) {
+                posIncrAtt.setPositionIncrement(skippedPositions + 1);
+                termAtt.copyBuffer(asciiBuffer, start, length);
+                hashTerm(asciiBuffer, start, length, tokenType);
+                final int offset = start - asciiStart;
+                offsetAtt.setOffset(correctOffset(offset), correctOffset(offset + length));
+                typeAtt.setType(PunctationTokenizer.TOKEN_TYPES[tokenType]);
+                return true;
+            } else
+                skippedPositions++;
+        }
+        return false;
+    }
+
+
+    /**
+     * Same as {@link #incrementToken()} for custom table. Letters and digits are collected code point by code
+     * point, so segment may span several reads of input.
+     */
+    private boolean incrementTableToken() throws IOException {
+        int length = 0, start = 0;
+        char[] buffer = termAtt.buffer();
+        while (true) {
+            if (tablePos >= tableEnd && !fillTable()) {
+                if (length == 0) {
+                    return false;
+                }
+            } else {
+                int c = Character.codePointAt(tableBuffer, tablePos, tableEnd);
+                int charCount = Character.charCount(c);
+                byte charClass = table.classify(c);
+                if (charClass == PunctationScanner.ALPHANUM) {
+                    if (length == 0) {
+                        start = tableOffset + tablePos;
+                    }
+                    if (length + charCount > buffer.length) {
+                        buffer = termAtt.resizeBuffer(length + charCount);
+                    }
+                    length += Character.toChars(c, buffer, length);
+                    tablePos += charCount;
+                    continue;
+                } else if (length == 0) {
+                    tablePos += charCount;
+                    if (charClass == PunctationScanner.OTHER) {
+                        continue;
+                    }
+                    start = tableOffset + tablePos - charCount;
+                    length = Character.toChars(c, buffer, 0);
+                    if (length > maxTokenLength) {
+                        skippedPositions++;
+                        length = 0;
+                        continue;
+                    }
+                    return emitTableToken(start, length, PUNCTATION);
+                }
+            }
+            if (length <= maxTokenLength) {
+                return emitTableToken(start, length, ALPHANUM);
+            }
+            skippedPositions++;
+            length = 0;
+        }
+    }
+
+
+    /**
+     * Sets hash of current term and id of segment in symbol table. Punctation is never added to table.
+     */
+    private void hashTerm(char[] buffer, int offset, int length, int tokenType) {
+        long hash = RollingHash.hash(buffer, offset, length);
+        hashAtt.setHash(hash);
+        if (symbolTable != null && tokenType == ALPHANUM) {
+            symbolAtt.setSymbol(symbolTable, symbolTable.offer(buffer, offset, length, hash));
+        }
+    }
+
+
+    private boolean emitTableToken(int start, int length, int tokenType) {
+        posIncrAtt.setPositionIncrement(skippedPositions + 1);
+        termAtt.setLength(length);
+        hashTerm(termAtt.buffer(), 0, length, tokenType);
+        offsetAtt.setOffset(correctOffset(start), correctOffset(start + length));
+        typeAtt.setType(PunctationTokenizer.TOKEN_TYPES[tokenType]);
+        return true;
+    }
+
+
+    /**
+     * Reads next chars of input to table buffer, returns false at the end of input.
+     */
+    private boolean fillTable() throws IOException {
+        if (tableInPlace) {
+            return false;
+        }
+        tableOffset += tableEnd;
+        CharacterUtils.fill(ioBuffer, input);
+        tableBuffer = ioBuffer.getBuffer();
+        tablePos = 0;
+        tableEnd = ioBuffer.getLength();
+        return tableEnd > 0;
+    }
+
+
     @Override
     public final void end() throws IOException {
         super.end();
         // set final offset
-        int finalOffset = correctOffset(scanner.yychar() + scanner.yylength());
+        int finalOffset = correctOffset(table != null ? tableOffset + tableEnd
+                : asciiBuffer != null ? asciiEnd - asciiStart
+                : scanner.yychar() + scanner.yylength());
         offsetAtt.setOffset(finalOffset, finalOffset);
         // adjust any skipped tokens
         posIncrAtt.setPositionIncrement(posIncrAtt.getPositionIncrement() + skippedPositions);
@@ -187,14 +398,64 @@ public final class PunctationTokenizer extends Tokenizer {
     @Override
     public void close() throws IOException {
         super.close();
-        scanner.yyreset(input);
+        asciiBuffer = null;
+        tableBuffer = null;
+        if (scanner != null) {
+            scanner.yyresetReader(input);
+        }
     }
 
 
+    /**
+     * Resets the tokenizer. If input is a {@link CharSequenceReader}, its chars are scanned in place instead of
+     * being pulled through the scanner's refill buffer. Pure ASCII in-place input bypasses JFlex scanner and is
+     * classified by {@link PunctationScanner}, vectorized on Java 17+ when possible.
+     */
     @Override
     public void reset() throws IOException {
         super.reset();
-        scanner.yyreset(input);
+        asciiBuffer = null;
         skippedPositions = 0;
+        if (table != null) {
+            resetTable();
+            return;
+        }
+        if (input instanceof CharSequenceReader) {
+            CharSequenceReader reader = (CharSequenceReader) input;
+            int start = reader.offset(), end = start + reader.length();
+            if (PunctationScanner.isAscii(reader.buffer(), start, end)) {
+                asciiBuffer = reader.buffer();
+                asciiStart = asciiPos = start;
+                asciiEnd = end;
+                if (scanner != null) {
+                    scanner.yyresetReader(input);
+                }
+            } else {
+                scanner().yyreset(reader.buffer(), start, reader.length());
+            }
+            reader.consume();
+        } else {
+            scanner().yyresetReader(input);
+        }
+    }
+
+
+    private void resetTable() {
+        tableInPlace = input instanceof CharSequenceReader;
+        if (tableInPlace) {
+            CharSequenceReader reader = (CharSequenceReader) input;
+            tableBuffer = reader.buffer();
+            tablePos = reader.offset();
+            tableEnd = tablePos + reader.length();
+            tableOffset = -tablePos;
+            reader.consume();
+        } else {
+            if (ioBuffer == null) {
+                ioBuffer = CharacterUtils.newCharacterBuffer(IO_BUFFER_SIZE);
+            }
+            ioBuffer.reset();
+            tableBuffer = ioBuffer.getBuffer();
+            tableOffset = tablePos = tableEnd = 0;
+        }
     }
 }
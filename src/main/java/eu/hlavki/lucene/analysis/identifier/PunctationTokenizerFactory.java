@@ -21,8 +21,38 @@ import org.apache.lucene.util.AttributeFactory;
 
 public class PunctationTokenizerFactory extends TokenizerFactory {
 
+    /**
+     * SPI name
+     */
+    public static final String NAME = "punctation";
+
+    private final PunctationTable table;
+    private final SegmentSymbolTable symbolTable;
+
+
+    /**
+     * Default ctor for compatibility with SPI
+     */
+    public PunctationTokenizerFactory() {
+        throw defaultCtorException();
+    }
+
+
+    /**
+     * Creates a new PunctationTokenizerFactory. Optional <code>punctation</code> argument replaces punctation
+     * chars of the grammar, optional <code>ignorable</code> argument lists chars ignored even if they are letters
+     * or digits. Custom chars are compiled to one {@link PunctationTable} shared by all created tokenizers.
+     * Optional <code>symbolTableSize</code> argument creates {@link SegmentSymbolTable} of given size shared by all
+     * created tokenizers.
+     *
+     * @param args
+     */
     public PunctationTokenizerFactory(Map<String, String> args) {
         super(args);
+        table = PunctationTable.of(get(args, "punctation", PunctationTable.DEFAULT_PUNCTATION),
+                get(args, "ignorable", ""));
+        int symbolTableSize = getInt(args, "symbolTableSize", 0);
+        symbolTable = symbolTableSize > 0 ? new SegmentSymbolTable(symbolTableSize) : null;
         if (!args.isEmpty()) {
             throw new IllegalArgumentException("Unknown parameters: " + args);
         }
@@ -31,7 +61,16 @@ public class PunctationTokenizerFactory extends TokenizerFactory {
 
     @Override
     public PunctationTokenizer create(AttributeFactory factory) {
-        PunctationTokenizer tokenizer = new PunctationTokenizer(factory);
+        PunctationTokenizer tokenizer = new PunctationTokenizer(factory, table);
+        tokenizer.setSymbolTable(symbolTable);
         return tokenizer;
     }
+
+
+    /**
+     * Returns symbol table shared by created tokenizers, null if symbols are disabled.
+     */
+    public SegmentSymbolTable getSymbolTable() {
+        return symbolTable;
+    }
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+/**
+ * Polynomial rolling hash of {@link IdentifierHashAttribute}. Hash of concatenation is computed from hashes of
+ * parts, <code>hash(a + b) = hash(a) * B^length(b) + hash(b)</code>, and hash of part from hashes of prefixes,
+ * <code>hash(b) = hash(a + b) - hash(a) * B^length(b)</code>. Arithmetic overflows, so it is modulo 2^64.
+ */
+final class RollingHash {
+
+    /**
+     * Odd multiplier, fractional part of golden ratio
+     */
+    static final long BASE = 0x9E3779B97F4A7C15L;
+
+    private static final long[] POWERS = new long[1024];
+
+    static {
+        POWERS[0] = 1;
+        for (int i = 1; i < POWERS.length; i++) {
+            POWERS[i] = POWERS[i - 1] * BASE;
+        }
+    }
+
+
+    private RollingHash() {
+    }
+
+
+    /**
+     * Returns hash of given chars.
+     */
+    static long hash(char[] buffer, int offset, int length) {
+        long hash = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            hash = hash * BASE + buffer[i];
+        }
+        return hash;
+    }
+
+
+    /**
+     * Returns hash of concatenation of two parts.
+     */
+    static long append(long hash, long suffixHash, int suffixLength) {
+        return hash * power(suffixLength) + suffixHash;
+    }
+
+
+    /**
+     * Returns hash of chars between two prefixes of the same text.
+     */
+    static long range(long prefixHash, int prefixLength, long longerPrefixHash, int longerPrefixLength) {
+        return longerPrefixHash - prefixHash * power(longerPrefixLength - prefixLength);
+    }
+
+
+    /**
+     * Returns <code>BASE^exponent</code>, from table for exponents up to 1023.
+     */
+    static long power(int exponent) {
+        if (exponent < POWERS.length) {
+            return POWERS[exponent];
+        }
+        long result = 1, base = BASE;
+        for (int e = exponent; e > 0; e >>>= 1) {
+            if ((e & 1) != 0) {
+                result *= base;
+            }
+            base *= base;
+        }
+        return result;
+    }
+}
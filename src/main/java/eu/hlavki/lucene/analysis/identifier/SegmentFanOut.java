@@ -0,0 +1,228 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import java.io.IOException;
+import java.io.Reader;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.apache.lucene.util.ArrayUtil;
+
+/**
+ * Tokenizes input once with {@link PunctationTokenizer} and feeds buffered segments to several downstream
+ * chains, e.g. one per field of the same document:
+ * <pre>
+ * SegmentFanOut fanOut = new SegmentFanOut();
+ * TokenStream ngrams = new LowerCaseFilter(fanOut.ngrams(3, 8, false, EMPTY_CHAR));
+ * TokenStream exact = new LowerCaseFilter(fanOut.identifier(EMPTY_CHAR));
+ * TokenStream segments = new LowerCaseFilter(fanOut.segments());
+ * ...
+ * fanOut.analyze(value);
+ * doc.add(new Field("id_ngram", ngrams, type));
+ * doc.add(new Field("id_exact", exact, type));
+ * doc.add(new Field("id_segment", segments, type));
+ * </pre>
+ * Every stream replays the shared segment list with its own cursor, so streams may be consumed in any order.
+ * Segment hashes and symbols are replayed too, so n-grams carry the same hashes as with tokenizer.
+ * Instance (including created streams) can be reused for next input, but it is not thread-safe.
+ */
+public final class SegmentFanOut {
+
+    private final PunctationTokenizer tokenizer;
+    private final CharSequenceReader reader = new CharSequenceReader();
+
+    // shared segment list
+    private char[] chars = new char[64];
+    private int[] charStarts = new int[8];
+    private int[] charLengths = new int[8];
+    private int[] startOffsets = new int[8];
+    private int[] endOffsets = new int[8];
+    private int[] posIncs = new int[8];
+    private String[] types = new String[8];
+    private long[] hashes = new long[8];
+    private int[] symbols = new int[8];
+    private SegmentSymbolTable symbolTable;
+    private int size;
+    private int charsLength;
+    private int finalOffset;
+    private int finalPosInc;
+
+
+    public SegmentFanOut() {
+        this(new PunctationTokenizer());
+    }
+
+
+    public SegmentFanOut(PunctationTokenizer tokenizer) {
+        this.tokenizer = tokenizer;
+    }
+
+
+    /**
+     * Tokenizes in-memory input and replaces buffered segments.
+     *
+     * @param text input text
+     * @throws IOException if tokenizer fails
+     */
+    public void analyze(CharSequence text) throws IOException {
+        reader.setText(text);
+        analyze(reader);
+    }
+
+
+    /**
+     * Tokenizes input and replaces buffered segments.
+     *
+     * @param input input reader
+     * @throws IOException if tokenizer fails
+     */
+    public void analyze(Reader input) throws IOException {
+        final CharTermAttribute termAtt = tokenizer.getAttribute(CharTermAttribute.class);
+        final OffsetAttribute offsetAtt = tokenizer.getAttribute(OffsetAttribute.class);
+        final PositionIncrementAttribute posIncrAtt = tokenizer.getAttribute(PositionIncrementAttribute.class);
+        final TypeAttribute typeAtt = tokenizer.getAttribute(TypeAttribute.class);
+        final IdentifierHashAttribute hashAtt = tokenizer.getAttribute(IdentifierHashAttribute.class);
+        final SegmentSymbolAttribute symbolAtt = tokenizer.getAttribute(SegmentSymbolAttribute.class);
+
+        size = 0;
+        symbolTable = tokenizer.getSymbolTable();
+        charsLength = 0;
+        tokenizer.setReader(input);
+        try {
+            tokenizer.reset();
+            while (tokenizer.incrementToken()) {
+                add(termAtt, offsetAtt, posIncrAtt.getPositionIncrement(), typeAtt.type(), hashAtt.getHash(),
+                        symbolAtt.getSymbol());
+            }
+            tokenizer.end();
+            finalOffset = offsetAtt.endOffset();
+            finalPosInc = posIncrAtt.getPositionIncrement();
+        } finally {
+            tokenizer.close();
+        }
+    }
+
+
+    private void add(CharTermAttribute termAtt, OffsetAttribute offsetAtt, int posInc, String type, long hash,
+            int symbol) {
+        if (size == charStarts.length) {
+            int newSize = ArrayUtil.oversize(size + 1, Integer.BYTES);
+            charStarts = ArrayUtil.growExact(charStarts, newSize);
+            charLengths = ArrayUtil.growExact(charLengths, newSize);
+            startOffsets = ArrayUtil.growExact(startOffsets, newSize);
+            endOffsets = ArrayUtil.growExact(endOffsets, newSize);
+            posIncs = ArrayUtil.growExact(posIncs, newSize);
+            types = ArrayUtil.growExact(types, newSize);
+            hashes = ArrayUtil.growExact(hashes, newSize);
+            symbols = ArrayUtil.growExact(symbols, newSize);
+        }
+        chars = ArrayUtil.grow(chars, charsLength + termAtt.length());
+        System.arraycopy(termAtt.buffer(), 0, chars, charsLength, termAtt.length());
+        charStarts[size] = charsLength;
+        charLengths[size] = termAtt.length();
+        startOffsets[size] = offsetAtt.startOffset();
+        endOffsets[size] = offsetAtt.endOffset();
+        posIncs[size] = posInc;
+        types[size] = type;
+        hashes[size] = hash;
+        symbols[size] = symbol;
+        charsLength += termAtt.length();
+        size++;
+    }
+
+
+    /**
+     * Creates stream replaying buffered segments as {@link PunctationTokenizer} emitted them.
+     */
+    public TokenStream newSource() {
+        return new SegmentSource();
+    }
+
+
+    /**
+     * Creates n-gram chain, see {@link IdentifierNGramFilter}.
+     */
+    public TokenStream ngrams(int minGramSize, int maxGramSize, boolean includeEdged, char customDelimiter) {
+        return new IdentifierNGramFilter(newSource(), minGramSize, maxGramSize, includeEdged, customDelimiter);
+    }
+
+
+    /**
+     * Creates exact identifier chain, see {@link IdentifierFilter}.
+     */
+    public TokenStream identifier(char customDelimiter) {
+        return new IdentifierFilter(newSource(), customDelimiter);
+    }
+
+
+    /**
+     * Creates chain of segments without punctation, see {@link PunctationFilter}.
+     */
+    public TokenStream segments() {
+        return new PunctationFilter(newSource());
+    }
+
+    private final class SegmentSource extends TokenStream {
+
+        private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+        private final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
+        private final PositionIncrementAttribute posIncrAtt = addAttribute(PositionIncrementAttribute.class);
+        private final TypeAttribute typeAtt = addAttribute(TypeAttribute.class);
+        private final IdentifierHashAttribute hashAtt = addAttribute(IdentifierHashAttribute.class);
+        private final SegmentSymbolAttribute symbolAtt = addAttribute(SegmentSymbolAttribute.class);
+        private int pos;
+
+
+        SegmentSource() {
+            super(IdentifierAttributeFactory.INSTANCE);
+        }
+
+
+        @Override
+        public boolean incrementToken() {
+            if (pos >= size) {
+                return false;
+            }
+            clearAttributes();
+            termAtt.copyBuffer(chars, charStarts[pos], charLengths[pos]);
+            offsetAtt.setOffset(startOffsets[pos], endOffsets[pos]);
+            posIncrAtt.setPositionIncrement(posIncs[pos]);
+            typeAtt.setType(types[pos]);
+            hashAtt.setHash(hashes[pos]);
+            symbolAtt.setSymbol(symbolTable, symbols[pos]);
+            pos++;
+            return true;
+        }
+
+
+        @Override
+        public void end() throws IOException {
+            super.end();
+            offsetAtt.setOffset(finalOffset, finalOffset);
+            posIncrAtt.setPositionIncrement(finalPosInc);
+        }
+
+
+        @Override
+        public void reset() throws IOException {
+            super.reset();
+            pos = 0;
+        }
+    }
+}
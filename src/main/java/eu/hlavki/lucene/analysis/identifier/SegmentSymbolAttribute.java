@@ -0,0 +1,48 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import org.apache.lucene.util.Attribute;
+
+/**
+ * Id of current segment in {@link SegmentSymbolTable}. Set by {@link PunctationTokenizer} created with a table,
+ * {@link #NO_SYMBOL} for segments not in table and for tokens of other components.
+ */
+public interface SegmentSymbolAttribute extends Attribute {
+
+    /**
+     * Id of token without symbol
+     */
+    int NO_SYMBOL = -1;
+
+
+    /**
+     * Returns id of current segment or {@link #NO_SYMBOL}.
+     */
+    int getSymbol();
+
+
+    /**
+     * Returns table of current id, null if there is no symbol.
+     */
+    SegmentSymbolTable getSymbolTable();
+
+
+    /**
+     * Sets id of current segment in given table.
+     */
+    void setSymbol(SegmentSymbolTable symbolTable, int symbol);
+}
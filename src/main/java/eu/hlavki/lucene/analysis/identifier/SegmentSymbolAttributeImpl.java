@@ -0,0 +1,86 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import org.apache.lucene.util.AttributeImpl;
+import org.apache.lucene.util.AttributeReflector;
+
+/**
+ * Default implementation of {@link SegmentSymbolAttribute}, used when chain is not created with
+ * {@link IdentifierAttributeFactory}.
+ */
+public final class SegmentSymbolAttributeImpl extends AttributeImpl implements SegmentSymbolAttribute {
+
+    private SegmentSymbolTable symbolTable;
+    private int symbol = NO_SYMBOL;
+
+
+    @Override
+    public int getSymbol() {
+        return symbol;
+    }
+
+
+    @Override
+    public SegmentSymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+
+    @Override
+    public void setSymbol(SegmentSymbolTable symbolTable, int symbol) {
+        this.symbolTable = symbol == NO_SYMBOL ? null : symbolTable;
+        this.symbol = symbol;
+    }
+
+
+    @Override
+    public void clear() {
+        symbolTable = null;
+        symbol = NO_SYMBOL;
+    }
+
+
+    @Override
+    public void copyTo(AttributeImpl target) {
+        ((SegmentSymbolAttribute) target).setSymbol(symbolTable, symbol);
+    }
+
+
+    @Override
+    public void reflectWith(AttributeReflector reflector) {
+        reflector.reflect(SegmentSymbolAttribute.class, "symbol", symbol);
+    }
+
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj instanceof SegmentSymbolAttributeImpl) {
+            SegmentSymbolAttributeImpl other = (SegmentSymbolAttributeImpl) obj;
+            return symbol == other.symbol && symbolTable == other.symbolTable;
+        }
+        return false;
+    }
+
+
+    @Override
+    public int hashCode() {
+        return symbol;
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Concurrent table of frequent segments (e.g. "ECLI", "SK", court abbreviations or years) and their int ids.
+ * {@link PunctationTokenizer} with a table sets {@link SegmentSymbolAttribute} of every segment and
+ * {@link IdentifierNGramFilter} keeps shared segment strings of the table in its window instead of copying chars
+ * of every segment.
+ *
+ * Table is bounded: when it holds <code>maxSize</code> symbols, new segments get no id. Segments longer than
+ * {@value #MAX_SYMBOL_LENGTH} chars are never added. Tokenizer offers segments with
+ * {@link #offer(char[], int, int, long)}, which admits only segments seen twice, so one-off segments at the start of
+ * corpus do not fill the table before frequent ones arrive. Lookups are lock-free, additions use compare-and-set, so one
+ * table can be shared by all tokenizers of a field. Ids are dense, but an id may be lost when two threads add the
+ * same segment at once.
+ */
+public final class SegmentSymbolTable {
+
+    /**
+     * Maximum length of segment kept in table
+     */
+    public static final int MAX_SYMBOL_LENGTH = 32;
+
+    /**
+     * Maximum size of table
+     */
+    public static final int MAX_SIZE_LIMIT = 1 << 24;
+
+    private final int maxSize;
+    private final int mask;
+    private final AtomicReferenceArray<Entry> slots;
+    private final AtomicReferenceArray<String> symbols;
+    // hashes of segments seen once, lossy
+    private final AtomicLongArray seen;
+    private final int seenMask;
+    private final AtomicInteger size = new AtomicInteger();
+
+
+    /**
+     * Creates table for at most <code>maxSize</code> symbols.
+     *
+     * @throws IllegalArgumentException if maxSize is outside of the range [1, {@value #MAX_SIZE_LIMIT}]
+     */
+    public SegmentSymbolTable(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be greater than zero");
+        } else if (maxSize > MAX_SIZE_LIMIT) {
+            throw new IllegalArgumentException("maxSize may not exceed " + MAX_SIZE_LIMIT);
+        }
+        this.maxSize = maxSize;
+        // load factor at most 0.5 keeps probe sequences short
+        int capacity = Integer.highestOneBit(maxSize) << 2;
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.symbols = new AtomicReferenceArray<>(maxSize);
+        this.seen = new AtomicLongArray(Integer.highestOneBit(maxSize) << 1);
+        this.seenMask = seen.length() - 1;
+    }
+
+
+    /**
+     * Returns id of segment. Segment not in table is added when it was offered before, so ids are spent on
+     * repeated segments. Seen segments are remembered in a fixed lossy array, colliding segments may evict each
+     * other or be admitted early.
+     *
+     * @param buffer segment chars
+     * @param offset offset of segment in buffer
+     * @param length segment length
+     * @param hash hash of segment, see {@link IdentifierHashAttribute}
+     * @return id of segment or {@link SegmentSymbolAttribute#NO_SYMBOL}
+     */
+    public int offer(char[] buffer, int offset, int length, long hash) {
+        int id = get(buffer, offset, length, hash);
+        if (id != SegmentSymbolAttribute.NO_SYMBOL || length > MAX_SYMBOL_LENGTH || size.get() >= maxSize) {
+            return id;
+        }
+        int i = slot(hash) & seenMask;
+        // zero marks empty slot
+        long mark = hash == 0 ? 1 : hash;
+        if (seen.get(i) == mark) {
+            return add(buffer, offset, length, hash);
+        }
+        seen.set(i, mark);
+        return SegmentSymbolAttribute.NO_SYMBOL;
+    }
+
+
+    /**
+     * Returns id of segment, adding it if table is not full.
+     *
+     * @param buffer segment chars
+     * @param offset offset of segment in buffer
+     * @param length segment length
+     * @param hash hash of segment, see {@link IdentifierHashAttribute}
+     * @return id of segment or {@link SegmentSymbolAttribute#NO_SYMBOL}
+     */
+    public int add(char[] buffer, int offset, int length, long hash) {
+        if (length > MAX_SYMBOL_LENGTH) {
+            return SegmentSymbolAttribute.NO_SYMBOL;
+        }
+        Entry added = null;
+        for (int i = slot(hash);; i = (i + 1) & mask) {
+            Entry entry = slots.get(i);
+            if (entry == null) {
+                if (added == null) {
+                    int id = reserveId();
+                    if (id < 0) {
+                        return SegmentSymbolAttribute.NO_SYMBOL;
+                    }
+                    added = new Entry(new String(buffer, offset, length), hash, id);
+                    symbols.set(id, added.symbol);
+                }
+                if (slots.compareAndSet(i, null, added)) {
+                    return added.id;
+                }
+                entry = slots.get(i);
+            }
+            if (entry.matches(buffer, offset, length, hash)) {
+                return entry.id;
+            }
+        }
+    }
+
+
+    /**
+     * Returns id of segment, or {@link SegmentSymbolAttribute#NO_SYMBOL} if it is not in table.
+     */
+    public int get(char[] buffer, int offset, int length, long hash) {
+        if (length > MAX_SYMBOL_LENGTH) {
+            return SegmentSymbolAttribute.NO_SYMBOL;
+        }
+        for (int i = slot(hash);; i = (i + 1) & mask) {
+            Entry entry = slots.get(i);
+            if (entry == null) {
+                return SegmentSymbolAttribute.NO_SYMBOL;
+            } else if (entry.matches(buffer, offset, length, hash)) {
+                return entry.id;
+            }
+        }
+    }
+
+
+    /**
+     * Returns segment of given id.
+     *
+     * @throws IndexOutOfBoundsException if id is not id of this table
+     */
+    public String symbol(int id) {
+        return symbols.get(id);
+    }
+
+
+    /**
+     * Returns number of assigned ids.
+     */
+    public int size() {
+        return size.get();
+    }
+
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+
+    private int reserveId() {
+        int id;
+        do {
+            id = size.get();
+            if (id >= maxSize) {
+                return -1;
+            }
+        } while (!size.compareAndSet(id, id + 1));
+        return id;
+    }
+
+
+    private int slot(long hash) {
+        int h = (int) (hash ^ (hash >>> 32)) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static final class Entry {
+
+        private final String symbol;
+        private final long hash;
+        private final int id;
+
+
+        Entry(String symbol, long hash, int id) {
+            this.symbol = symbol;
+            this.hash = hash;
+            this.id = id;
+        }
+
+
+        boolean matches(char[] buffer, int offset, int length, long hash) {
+            if (this.hash != hash || symbol.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (symbol.charAt(i) != buffer[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.util.ArrayUtil;
+
+/**
+ * Tokens of one analyzed input, emitted by {@link IdentifierTokenPublisher}. Terms are stored in one shared char
+ * buffer. Batch instance is reused by its subscription, so it is valid only during
+ * {@link java.util.concurrent.Flow.Subscriber#onNext(Object)}; subscriber has to copy data it keeps.
+ */
+public final class TokenBatch {
+
+    private char[] chars = new char[64];
+    private int[] charStarts = new int[8];
+    private int[] charLengths = new int[8];
+    private int[] startOffsets = new int[8];
+    private int[] endOffsets = new int[8];
+    private int[] posIncs = new int[8];
+    private String[] types = new String[8];
+    private int size;
+    private int charsLength;
+    private long input;
+
+
+    TokenBatch() {
+    }
+
+
+    /**
+     * Returns zero based index of analyzed input in source sequence.
+     */
+    public long input() {
+        return input;
+    }
+
+
+    /**
+     * Returns number of tokens.
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Returns shared term buffer, term of token <code>i</code> starts at {@link #termStart(int)}.
+     */
+    public char[] termBuffer() {
+        return chars;
+    }
+
+
+    public int termStart(int i) {
+        return charStarts[i];
+    }
+
+
+    public int termLength(int i) {
+        return charLengths[i];
+    }
+
+
+    /**
+     * Returns term of token <code>i</code> as new string.
+     */
+    public String term(int i) {
+        return new String(chars, charStarts[i], charLengths[i]);
+    }
+
+
+    public int startOffset(int i) {
+        return startOffsets[i];
+    }
+
+
+    public int endOffset(int i) {
+        return endOffsets[i];
+    }
+
+
+    public int positionIncrement(int i) {
+        return posIncs[i];
+    }
+
+
+    public String type(int i) {
+        return types[i];
+    }
+
+
+    void clear(long input) {
+        this.input = input;
+        size = 0;
+        charsLength = 0;
+    }
+
+
+    void add(CharTermAttribute termAtt, OffsetAttribute offsetAtt, int posInc, String type) {
+        if (size == charStarts.length) {
+            int newSize = ArrayUtil.oversize(size + 1, Integer.BYTES);
+            charStarts = ArrayUtil.growExact(charStarts, newSize);
+            charLengths = ArrayUtil.growExact(charLengths, newSize);
+            startOffsets = ArrayUtil.growExact(startOffsets, newSize);
+            endOffsets = ArrayUtil.growExact(endOffsets, newSize);
+            posIncs = ArrayUtil.growExact(posIncs, newSize);
+            types = ArrayUtil.growExact(types, newSize);
+        }
+        chars = ArrayUtil.grow(chars, charsLength + termAtt.length());
+        System.arraycopy(termAtt.buffer(), 0, chars, charsLength, termAtt.length());
+        charStarts[size] = charsLength;
+        charLengths[size] = termAtt.length();
+        startOffsets[size] = offsetAtt.startOffset();
+        endOffsets[size] = offsetAtt.endOffset();
+        posIncs[size] = posInc;
+        types[size] = type;
+        charsLength += termAtt.length();
+        size++;
+    }
+
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("TokenBatch{input=").append(input).append(", terms=[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(chars, charStarts[i], charLengths[i]);
+        }
+        return sb.append("]}").toString();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.lucene.analysis.AbstractAnalysisFactory;
+
+/**
+ * Shared constants and helpers of on-disk token cache written by {@link TokenCacheWriter} and replayed by
+ * {@link TokenCacheReader}.
+ *
+ * File layout:
+ * <pre>
+ * Header     --&gt; CodecHeader, Config
+ * Record     --&gt; Input, TokenCount, FinalOffset, &lt;Term, PositionIncrement, StartOffset, Length, TypeOrd,
+ *                PositionLength, TermFrequency, Hash&gt;^TokenCount
+ * Index      --&gt; TypeCount, &lt;Type&gt;^TypeCount, EntryCount, &lt;Key, RecordPointer&gt;^EntryCount
+ * Trailer    --&gt; IndexPointer, CodecFooter
+ * </pre>
+ * Records are stored in order they were added, index entries are sorted by key. Records of
+ * {@link #VERSION_START} files have no PositionLength and TermFrequency, they are replayed as 1. Records written
+ * before {@link #VERSION_HASH} have no Hash, it is computed from term when replayed.
+ */
+public final class TokenCache {
+
+    static final String CODEC_NAME = "IdentifierTokenCache";
+    static final int VERSION_START = 0;
+    static final int VERSION_GRAPH = 1;
+    static final int VERSION_HASH = 2;
+    static final int VERSION_CURRENT = VERSION_HASH;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+
+    private TokenCache() {
+    }
+
+
+    /**
+     * Builds analysis configuration string from factories of analysis chain. Changing any factory argument
+     * (e.g. <code>minGramSize</code>, <code>maxGramSize</code> or <code>customDelimiter</code>) changes the
+     * configuration and invalidates the cache.
+     *
+     * @param factories factories of analysis chain in order
+     * @return configuration string
+     */
+    public static String config(AbstractAnalysisFactory... factories) {
+        StringBuilder sb = new StringBuilder();
+        for (AbstractAnalysisFactory factory : factories) {
+            if (sb.length() > 0) {
+                sb.append('|');
+            }
+            Map<String, String> args = new TreeMap<>(factory.getOriginalArgs());
+            sb.append(factory.getClass().getName()).append(args);
+        }
+        return sb.toString();
+    }
+
+
+    /**
+     * Computes 64-bit FNV-1a hash of input chars seeded by hash of configuration.
+     */
+    static long key(String config, CharSequence input) {
+        return hash(hash(FNV_OFFSET_BASIS, config), input);
+    }
+
+
+    private static long hash(long seed, CharSequence chars) {
+        long h = seed;
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            h = (h ^ (c & 0xff)) * FNV_PRIME;
+            h = (h ^ (c >>> 8)) * FNV_PRIME;
+        }
+        return h;
+    }
+}
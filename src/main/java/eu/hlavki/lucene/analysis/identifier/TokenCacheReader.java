@@ -0,0 +1,246 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.BytesTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionLengthAttribute;
+import org.apache.lucene.analysis.tokenattributes.TermFrequencyAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.CloseableThreadLocal;
+import org.apache.lucene.util.UnicodeUtil;
+
+/**
+ * Replays token streams stored by {@link TokenCacheWriter}. Open the cache file from
+ * {@link org.apache.lucene.store.MMapDirectory} so records are read from memory-mapped file. Checksum of whole
+ * file is verified when it is opened.
+ *
+ * Replayed terms are exposed as UTF-8 bytes in {@link BytesTermAttribute}, as they are consumed by
+ * {@link org.apache.lucene.index.IndexWriter}, so they are neither decoded to chars nor encoded again. Stream has
+ * no {@link org.apache.lucene.analysis.tokenattributes.CharTermAttribute}. {@link IndexInput} gives no access to
+ * mapped bytes, so each term is still copied once from the file to a reused buffer.
+ *
+ * If cache was written with different analysis configuration, it is considered invalid and every lookup
+ * misses.
+ *
+ * @see TokenCache
+ */
+public final class TokenCacheReader implements Closeable {
+
+    private final IndexInput in;
+    private final String config;
+    private final int version;
+    private final boolean valid;
+    private final String[] types;
+    private final long[] keys;
+    private final long[] pointers;
+    // one replay stream per thread, like reused components of an analyzer
+    private final CloseableThreadLocal<ReplayTokenStream> streams = new CloseableThreadLocal<>();
+
+
+    /**
+     * Opens cache file.
+     *
+     * @param dir directory of cache file
+     * @param name name of cache file
+     * @param config current analysis configuration, see {@link TokenCache#config}
+     * @throws IOException if file cannot be read or is corrupted
+     */
+    public TokenCacheReader(Directory dir, String name, String config) throws IOException {
+        this.config = config;
+        in = dir.openInput(name, IOContext.DEFAULT);
+        boolean success = false;
+        try {
+            version = CodecUtil.checkHeader(in, TokenCache.CODEC_NAME, TokenCache.VERSION_START,
+                    TokenCache.VERSION_CURRENT);
+            valid = config.equals(in.readString());
+            CodecUtil.checksumEntireFile(in);
+            if (valid) {
+                in.seek(in.length() - CodecUtil.footerLength() - Long.BYTES);
+                in.seek(in.readLong());
+                types = new String[in.readVInt()];
+                for (int i = 0; i < types.length; i++) {
+                    types[i] = in.readString();
+                }
+                int count = in.readVInt();
+                keys = new long[count];
+                pointers = new long[count];
+                for (int i = 0; i < count; i++) {
+                    keys[i] = in.readLong();
+                    pointers[i] = in.readVLong();
+                }
+            } else {
+                types = new String[0];
+                keys = new long[0];
+                pointers = new long[0];
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                in.close();
+            }
+        }
+    }
+
+
+    /**
+     * Returns true if cache was written with the same analysis configuration.
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+
+    /**
+     * Number of cached inputs.
+     */
+    public int size() {
+        return keys.length;
+    }
+
+
+    /**
+     * Returns token stream replaying cached tokens of input. Stream is reused by subsequent calls of the same
+     * thread, so it has to be consumed and closed before the next call, like streams of an analyzer.
+     *
+     * @param input analyzed input
+     * @return replaying token stream or <code>null</code> if input is not cached
+     * @throws IOException if cache cannot be read
+     */
+    public TokenStream tokenStream(String input) throws IOException {
+        ReplayTokenStream stream = streams.get();
+        if (stream == null) {
+            stream = new ReplayTokenStream();
+            streams.set(stream);
+        }
+        return stream.seek(input) ? stream : null;
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        try (in) {
+            streams.close();
+        }
+    }
+
+    /**
+     * Token stream reading cached record directly from cloned cache input.
+     */
+    private final class ReplayTokenStream extends TokenStream {
+
+        private final BytesTermAttribute termAtt = addAttribute(BytesTermAttribute.class);
+        private final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
+        private final PositionIncrementAttribute posIncrAtt = addAttribute(PositionIncrementAttribute.class);
+        private final TypeAttribute typeAtt = addAttribute(TypeAttribute.class);
+        private final IdentifierHashAttribute hashAtt = addAttribute(IdentifierHashAttribute.class);
+        private final PositionLengthAttribute posLenAtt = addAttribute(PositionLengthAttribute.class);
+        private final TermFrequencyAttribute termFreqAtt = addAttribute(TermFrequencyAttribute.class);
+
+        private final IndexInput input = in.clone();
+        private final BytesRefBuilder scratch = new BytesRefBuilder();
+        private final BytesRef term = new BytesRef(16);
+        private char[] chars = new char[16];
+        private byte[] bytes = new byte[16];
+        private long recordPointer;
+        private int remaining;
+        private int finalOffset;
+
+
+        private boolean seek(String text) throws IOException {
+            long key = TokenCache.key(config, text);
+            int idx = Arrays.binarySearch(keys, key);
+            if (idx < 0) {
+                return false;
+            }
+            while (idx > 0 && keys[idx - 1] == key) {
+                idx--;
+            }
+            scratch.copyChars(text);
+            for (; idx < keys.length && keys[idx] == key; idx++) {
+                input.seek(pointers[idx]);
+                int length = input.readVInt();
+                bytes = ArrayUtil.grow(bytes, length);
+                input.readBytes(bytes, 0, length);
+                if (Arrays.equals(bytes, 0, length, scratch.bytes(), 0, scratch.length())) {
+                    recordPointer = input.getFilePointer();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+
+        @Override
+        public void reset() throws IOException {
+            super.reset();
+            input.seek(recordPointer);
+            remaining = input.readVInt();
+            finalOffset = input.readVInt();
+        }
+
+
+        @Override
+        public boolean incrementToken() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            clearAttributes();
+            int length = input.readVInt();
+            term.bytes = ArrayUtil.grow(term.bytes, length);
+            term.length = length;
+            input.readBytes(term.bytes, 0, length);
+            termAtt.setBytesRef(term);
+            posIncrAtt.setPositionIncrement(input.readVInt());
+            int startOffset = input.readVInt();
+            offsetAtt.setOffset(startOffset, startOffset + input.readVInt());
+            typeAtt.setType(types[input.readVInt()]);
+            if (version >= TokenCache.VERSION_GRAPH) {
+                posLenAtt.setPositionLength(input.readVInt());
+                termFreqAtt.setTermFrequency(input.readVInt());
+            }
+            // cached terms have no segment symbols
+            hashAtt.setHash(version >= TokenCache.VERSION_HASH ? input.readLong() : hash(term));
+            remaining--;
+            return true;
+        }
+
+
+        private long hash(BytesRef term) {
+            chars = ArrayUtil.grow(chars, term.length);
+            return RollingHash.hash(chars, 0, UnicodeUtil.UTF8toUTF16(term.bytes, 0, term.length, chars));
+        }
+
+
+        @Override
+        public void end() throws IOException {
+            super.end();
+            offsetAtt.setOffset(finalOffset, finalOffset);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionLengthAttribute;
+import org.apache.lucene.analysis.tokenattributes.TermFrequencyAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRefBuilder;
+
+/**
+ * Writes analyzed token streams to on-disk cache file, keyed by hash of input and analysis configuration.
+ * Cache is replayed by {@link TokenCacheReader}.
+ *
+ * @see TokenCache
+ */
+public final class TokenCacheWriter implements Closeable {
+
+    private final IndexOutput out;
+    private final String config;
+    private final BytesRefBuilder bytes = new BytesRefBuilder();
+    private final Map<String, Integer> types = new HashMap<>();
+    private final TokenBuffer tokens = new TokenBuffer();
+    private long[] keys = new long[16];
+    private long[] pointers = new long[16];
+    private int count;
+    private boolean closed;
+
+
+    /**
+     * Creates new cache file.
+     *
+     * @param dir directory of cache file
+     * @param name name of cache file
+     * @param config analysis configuration, see {@link TokenCache#config}
+     * @throws IOException if file cannot be created
+     */
+    public TokenCacheWriter(Directory dir, String name, String config) throws IOException {
+        this.config = config;
+        out = dir.createOutput(name, IOContext.DEFAULT);
+        CodecUtil.writeHeader(out, TokenCache.CODEC_NAME, TokenCache.VERSION_CURRENT);
+        out.writeString(config);
+    }
+
+
+    /**
+     * Consumes whole token stream and stores its tokens for given input.
+     *
+     * @param input analyzed input
+     * @param stream token stream produced from input, it is reset, consumed, ended and closed
+     * @throws IOException if stream cannot be consumed or written
+     */
+    public void add(String input, TokenStream stream) throws IOException {
+        final CharTermAttribute termAtt = stream.addAttribute(CharTermAttribute.class);
+        final OffsetAttribute offsetAtt = stream.addAttribute(OffsetAttribute.class);
+        final PositionIncrementAttribute posIncrAtt = stream.addAttribute(PositionIncrementAttribute.class);
+        final TypeAttribute typeAtt = stream.addAttribute(TypeAttribute.class);
+        final PositionLengthAttribute posLenAtt = stream.addAttribute(PositionLengthAttribute.class);
+        final TermFrequencyAttribute termFreqAtt = stream.addAttribute(TermFrequencyAttribute.class);
+        final IdentifierHashAttribute hashAtt = stream.addAttribute(IdentifierHashAttribute.class);
+
+        // buffer tokens first, record starts with token count
+        tokens.clear();
+        try (stream) {
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(termAtt, posIncrAtt.getPositionIncrement(), offsetAtt.startOffset(), offsetAtt.endOffset(),
+                        typeOrd(typeAtt.type()), posLenAtt.getPositionLength(), termFreqAtt.getTermFrequency(),
+                        hashAtt.getHash());
+            }
+            stream.end();
+            tokens.finalOffset = offsetAtt.endOffset();
+        }
+
+        keys = ArrayUtil.grow(keys, count + 1);
+        pointers = ArrayUtil.grow(pointers, count + 1);
+        keys[count] = TokenCache.key(config, input);
+        pointers[count] = out.getFilePointer();
+        count++;
+
+        writeChars(input);
+        out.writeVInt(tokens.size);
+        out.writeVInt(tokens.finalOffset);
+        for (int i = 0; i < tokens.size; i++) {
+            out.writeVInt(tokens.termLengths[i]);
+            out.writeBytes(tokens.terms.bytes(), tokens.termStarts[i], tokens.termLengths[i]);
+            int base = i * TokenBuffer.INTS;
+            out.writeVInt(tokens.ints[base]);
+            out.writeVInt(tokens.ints[base + 1]);
+            out.writeVInt(tokens.ints[base + 2] - tokens.ints[base + 1]);
+            out.writeVInt(tokens.ints[base + 3]);
+            out.writeVInt(tokens.ints[base + 4]);
+            out.writeVInt(tokens.ints[base + 5]);
+            out.writeLong(tokens.hashes[i]);
+        }
+    }
+
+
+    private int typeOrd(String type) {
+        return types.computeIfAbsent(type, t -> types.size());
+    }
+
+
+    private void writeChars(CharSequence chars) throws IOException {
+        bytes.copyChars(chars);
+        out.writeVInt(bytes.length());
+        out.writeBytes(bytes.bytes(), bytes.length());
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (out) {
+            long indexPointer = out.getFilePointer();
+            String[] typeArray = new String[types.size()];
+            types.forEach((type, ord) -> typeArray[ord] = type);
+            out.writeVInt(typeArray.length);
+            for (String type : typeArray) {
+                out.writeString(type);
+            }
+
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+            out.writeVInt(count);
+            for (Integer i : order) {
+                out.writeLong(keys[i]);
+                out.writeVLong(pointers[i]);
+            }
+            out.writeLong(indexPointer);
+            CodecUtil.writeFooter(out);
+        }
+    }
+
+    private static final class TokenBuffer {
+
+        // position increment, start offset, end offset, type ord, position length and term frequency
+        private static final int INTS = 6;
+
+        private final BytesRefBuilder terms = new BytesRefBuilder();
+        private final BytesRefBuilder term = new BytesRefBuilder();
+        private int[] termStarts = new int[8];
+        private int[] termLengths = new int[8];
+        private int[] ints = new int[8 * INTS];
+        private long[] hashes = new long[8];
+        private int size;
+        private int finalOffset;
+
+
+        private void clear() {
+            terms.clear();
+            size = 0;
+            finalOffset = 0;
+        }
+
+
+        private void add(CharTermAttribute termAtt, int posInc, int startOffset, int endOffset, int typeOrd,
+                int posLen, int termFreq, long hash) {
+            termStarts = ArrayUtil.grow(termStarts, size + 1);
+            hashes = ArrayUtil.grow(hashes, size + 1);
+            termLengths = ArrayUtil.grow(termLengths, size + 1);
+            ints = ArrayUtil.grow(ints, (size + 1) * INTS);
+            term.copyChars(termAtt.buffer(), 0, termAtt.length());
+            termStarts[size] = terms.length();
+            termLengths[size] = term.length();
+            terms.append(term);
+            int base = size * INTS;
+            ints[base] = posInc;
+            ints[base + 1] = startOffset;
+            ints[base + 2] = endOffset;
+            ints[base + 3] = typeOrd;
+            ints[base + 4] = posLen;
+            ints[base + 5] = termFreq;
+            hashes[size] = hash;
+            size++;
+        }
+    }
+}
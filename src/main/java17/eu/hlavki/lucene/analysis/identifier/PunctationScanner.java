@@ -0,0 +1,123 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+/**
+ * Character classification of ASCII input, taken from {@link PunctationTable#DEFAULT} which is equivalent to
+ * PunctationTokenizerImpl.jflex grammar for chars below 128. {@link PunctationTokenizer} uses it to scan in-place
+ * ASCII input without JFlex scanner.
+ *
+ * Java 17 variant. When <code>jdk.incubator.vector</code> module is resolved (e.g. JVM runs with
+ * <code>--add-modules jdk.incubator.vector</code>), range scans are delegated to
+ * {@link VectorPunctationScanner}, otherwise scalar code is used.
+ */
+final class PunctationScanner {
+
+    static final byte OTHER = 0;
+    static final byte ALPHANUM = 1;
+    static final byte PUNCTATION = 2;
+
+    // shared with PunctationTable, so scanners and tokenizer with default table classify alike
+    private static final byte[] CLASSES = PunctationTable.DEFAULT.asciiClasses();
+    private static final boolean VECTORIZED;
+
+    static {
+        VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent() && selfTest();
+    }
+
+
+    private PunctationScanner() {
+    }
+
+
+    /**
+     * Checks that vector implementation links and gives the same results as scalar code, including every ASCII
+     * char, so vector code is not used if default table differs from its letters and digits.
+     */
+    private static boolean selfTest() {
+        try {
+            StringBuilder chars = new StringBuilder(
+                    "ECLI:SK:USSR:2015:1.US.14.2015.1 ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 č");
+            for (char c = 0; c < 128; c++) {
+                chars.append(c);
+            }
+            char[] sample = chars.toString().toCharArray();
+            for (int from = 0; from < sample.length; from++) {
+                if (VectorPunctationScanner.skipAlphanum(sample, from, sample.length)
+                        != scalarSkipAlphanum(sample, from, sample.length)
+                        || VectorPunctationScanner.isAscii(sample, from, sample.length)
+                        != scalarIsAscii(sample, from, sample.length)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (LinkageError | RuntimeException e) {
+            return false;
+        }
+    }
+
+
+    /**
+     * Returns true if scanning is vectorized.
+     */
+    static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+
+    /**
+     * Returns class of ASCII char.
+     */
+    static byte classify(char c) {
+        return CLASSES[c];
+    }
+
+
+    /**
+     * Returns true if all chars in range are ASCII.
+     */
+    static boolean isAscii(char[] buffer, int from, int to) {
+        return VECTORIZED ? VectorPunctationScanner.isAscii(buffer, from, to) : scalarIsAscii(buffer, from, to);
+    }
+
+
+    /**
+     * Returns index of first char in range which is not ASCII letter or digit, or <code>to</code>.
+     */
+    static int skipAlphanum(char[] buffer, int from, int to) {
+        return VECTORIZED ? VectorPunctationScanner.skipAlphanum(buffer, from, to)
+                : scalarSkipAlphanum(buffer, from, to);
+    }
+
+
+    private static boolean scalarIsAscii(char[] buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] >= 128) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static int scalarSkipAlphanum(char[] buffer, int from, int to) {
+        int i = from;
+        while (i < to && buffer[i] < 128 && CLASSES[buffer[i]] == ALPHANUM) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API range scans of {@link PunctationScanner}. Processes as many chars at once as preferred species
+ * allows (8 to 32 chars), tail is scanned by scalar loop. Loaded only when <code>jdk.incubator.vector</code>
+ * module is available.
+ */
+final class VectorPunctationScanner {
+
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+
+
+    private VectorPunctationScanner() {
+    }
+
+
+    static boolean isAscii(char[] buffer, int from, int to) {
+        int i = from;
+        for (int bound = to - SPECIES.length(); i <= bound; i += SPECIES.length()) {
+            ShortVector v = ShortVector.fromCharArray(SPECIES, buffer, i);
+            if (v.and((short) 0xff80).compare(VectorOperators.NE, (short) 0).anyTrue()) {
+                return false;
+            }
+        }
+        for (; i < to; i++) {
+            if (buffer[i] >= 128) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    static int skipAlphanum(char[] buffer, int from, int to) {
+        int i = from;
+        for (int bound = to - SPECIES.length(); i <= bound; i += SPECIES.length()) {
+            VectorMask<Short> alphanum = alphanum(ShortVector.fromCharArray(SPECIES, buffer, i));
+            if (!alphanum.allTrue()) {
+                return i + alphanum.not().firstTrue();
+            }
+        }
+        for (; i < to; i++) {
+            char c = buffer[i];
+            char lower = (char) (c | 0x20);
+            if (!(c >= '0' && c <= '9') && !(lower >= 'a' && lower <= 'z')) {
+                break;
+            }
+        }
+        return i;
+    }
+
+
+    private static VectorMask<Short> alphanum(ShortVector v) {
+        VectorMask<Short> digit = v.compare(VectorOperators.GE, (short) '0')
+                .and(v.compare(VectorOperators.LE, (short) '9'));
+        ShortVector lower = v.or((short) 0x20);
+        VectorMask<Short> letter = lower.compare(VectorOperators.GE, (short) 'a')
+                .and(lower.compare(VectorOperators.LE, (short) 'z'));
+        return digit.or(letter);
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import static eu.hlavki.lucene.analysis.identifier.IdentifierFilter.EMPTY_CHAR;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.function.Function;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.tokenattributes.PackedTokenAttributeImpl;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import org.junit.jupiter.api.BeforeAll;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Guards bytes allocated per analyzed identifier of every analysis stage. Each stage runs behind
+ * {@link PunctationTokenizer} in reused chain, so measured value includes tokenizer allocations. Every stage is
+ * measured with in-place {@link CharSequenceReader} input, which takes ASCII bypass for most identifiers, and with
+ * <code>String</code> input of <code>Analyzer.tokenStream(String, String)</code>, which goes through JFlex scanner.
+ * When a change legitimately needs more memory, raise the budget in the same commit.
+ *
+ * Allocation depends on JIT escape analysis, so budgets are enforced only on the JDK they were measured on
+ * ({@value #MEASURED_JDK}). Re-measure them before enabling another JDK.
+ */
+public class AllocationBudgetTest {
+
+    private static final String[] IDENTIFIERS = {
+        "I. ÚS 22/2015",
+        "ECLI:SK:USSR:2015:1.US.14.2015.1",
+        "192.168.1.1",
+        "2Tdo/12/2019-27",
+        "org.apache.lucene.analysis.TokenStream",
+        "5Obo 123/2014"
+    };
+    private static final int WARMUP_ROUNDS = 20_000;
+    private static final int MEASURED_ROUNDS = 2_000;
+    private static final int MEASURED_JDK = 17;
+
+    private static com.sun.management.ThreadMXBean threadBean;
+
+
+    @BeforeAll
+    public static void setUp() {
+        assumeTrue(Runtime.version().feature() == MEASURED_JDK, "budgets were measured on JDK " + MEASURED_JDK);
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean, "thread allocation counter is not available");
+        threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported(), "thread allocation counter is not supported");
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+
+    @Test
+    public void punctationTokenizer() throws IOException {
+        assertBudget(src -> src, 128);
+    }
+
+
+    @Test
+    public void identifierNGramFilter() throws IOException {
+        assertBudget(src -> new IdentifierNGramFilter(src, 3, 8, true, EMPTY_CHAR), 4_800);
+    }
+
+
+    @Test
+    public void identifierNGramFilterWithSymbols() throws IOException {
+        // window keeps no copies of known segments
+        assertBudget(src -> new IdentifierNGramFilter(src, 3, 8, true, EMPTY_CHAR), new SegmentSymbolTable(1024),
+                3_300);
+    }
+
+
+    @Test
+    public void identifierFilter() throws IOException {
+        assertBudget(src -> new IdentifierFilter(src), 128);
+    }
+
+
+    @Test
+    public void punctationFilter() throws IOException {
+        assertBudget(src -> new PunctationFilter(src), 128);
+    }
+
+
+    @Test
+    public void compositionFilter() throws IOException {
+        assertBudget(src -> new WholeCompositionFilter(src), 4_000);
+    }
+
+
+    private static void assertBudget(Function<Tokenizer, TokenStream> stage, long budget) throws IOException {
+        assertBudget(stage, null, budget);
+    }
+
+
+    private static void assertBudget(Function<Tokenizer, TokenStream> stage, SegmentSymbolTable symbolTable,
+            long budget) throws IOException {
+        Analyzer analyzer = new Analyzer() {
+            @Override
+            protected Analyzer.TokenStreamComponents createComponents(String fieldName) {
+                final PunctationTokenizer src = new PunctationTokenizer();
+                src.setSymbolTable(symbolTable);
+                return new Analyzer.TokenStreamComponents(src, stage.apply(src));
+            }
+        };
+        for (boolean inPlace : new boolean[]{true, false}) {
+            consume(analyzer, inPlace, WARMUP_ROUNDS);
+            long threadId = Thread.currentThread().getId();
+            long start = threadBean.getThreadAllocatedBytes(threadId);
+            consume(analyzer, inPlace, MEASURED_ROUNDS);
+            long allocated = threadBean.getThreadAllocatedBytes(threadId) - start;
+            long perIdentifier = allocated / ((long) MEASURED_ROUNDS * IDENTIFIERS.length);
+            assertThat("bytes allocated per identifier" + (inPlace ? " in place" : " from string"), perIdentifier,
+                    lessThanOrEqualTo(budget));
+        }
+    }
+
+
+    /**
+     * Analyzes identifiers in place or as strings, which analyzer reads through its reused string reader.
+     */
+    private static void consume(Analyzer analyzer, boolean inPlace, int rounds) throws IOException {
+        CharSequenceReader reader = new CharSequenceReader();
+        for (int i = 0; i < rounds; i++) {
+            for (String identifier : IDENTIFIERS) {
+                reader.setText(identifier);
+                try (TokenStream stream = inPlace ? analyzer.tokenStream(null, reader)
+                        : analyzer.tokenStream(null, identifier)) {
+                    stream.reset();
+                    while (stream.incrementToken()) {
+                        // consume
+                    }
+                    stream.end();
+                }
+            }
+        }
+    }
+
+    /**
+     * Composes all tokens of input into one token.
+     */
+    private static final class WholeCompositionFilter extends CompositionFilter {
+
+        private WholeCompositionFilter(TokenStream input) {
+            super(input);
+        }
+
+
+        @Override
+        protected CState validateToken(String token) {
+            return CState.CONTINUE;
+        }
+
+
+        @Override
+        protected CState validateFinish(CState previousState) {
+            PackedTokenAttributeImpl composition = getComposition();
+            if (composition.length() == 0) {
+                return CState.ROLLBACK;
+            }
+            addToken(composition.toString(), composition.startOffset(), composition.endOffset());
+            return CState.FINISH_VALID;
+        }
+    }
+}
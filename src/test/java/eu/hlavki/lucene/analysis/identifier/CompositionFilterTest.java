@@ -0,0 +1,109 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PackedTokenAttributeImpl;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.junit.jupiter.api.Test;
+
+public class CompositionFilterTest {
+
+    @Test
+    public void reEmitCompositionTerms() throws IOException {
+        Analyzer analyzer = new Analyzer() {
+            @Override
+            protected Analyzer.TokenStreamComponents createComponents(String fieldName) {
+                final Tokenizer src = new WhitespaceTokenizer();
+                return new Analyzer.TokenStreamComponents(src, new NumberCompositionFilter(src));
+            }
+        };
+        List<String> expected = Arrays.asList("x [0, 1]", "1 2 3 [2, 7]", "y [8, 9]", "4 5 [10, 13]",
+                "1 [2, 3]", "2 [4, 5]", "3 [6, 7]", "4 [10, 11]", "5 [12, 13]");
+        // second round runs on reused filter with pooled snapshots
+        for (int i = 0; i < 2; i++) {
+            assertThat(analyze(analyzer, "x 1 2 3 y 4 5"), is(expected));
+        }
+    }
+
+
+    private static List<String> analyze(Analyzer analyzer, String text) throws IOException {
+        List<String> result = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream(null, new StringReader(text))) {
+            final CharTermAttribute termAtt = stream.getAttribute(CharTermAttribute.class);
+            final OffsetAttribute offsetAtt = stream.getAttribute(OffsetAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                result.add(new Term(termAtt.toString(), offsetAtt.startOffset(), offsetAtt.endOffset()).toString());
+            }
+            stream.end();
+        }
+        return result;
+    }
+
+    /**
+     * Composes consecutive numbers and emits terms of all compositions at the end of input.
+     */
+    private static final class NumberCompositionFilter extends CompositionFilter {
+
+        private final List<PackedTokenAttributeImpl> terms = new ArrayList<>();
+
+
+        private NumberCompositionFilter(TokenStream input) {
+            super(input);
+        }
+
+
+        @Override
+        protected CState validateToken(String token) {
+            if (Character.isDigit(token.charAt(0))) {
+                return CState.CONTINUE;
+            }
+            return getComposition().length() == 0 ? CState.ROLLBACK : finish(CState.FINISH_INVALID);
+        }
+
+
+        @Override
+        protected CState validateFinish(CState previousState) {
+            if (getComposition().length() == 0) {
+                return CState.ROLLBACK;
+            }
+            finish(CState.FINISH_VALID);
+            addTokens(terms);
+            terms.clear();
+            return CState.FINISH_VALID;
+        }
+
+
+        private CState finish(CState state) {
+            PackedTokenAttributeImpl composition = getComposition();
+            addToken(composition.toString(), composition.startOffset(), composition.endOffset());
+            terms.addAll(getCompositionTerms());
+            return state;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenFilterFactory;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.TokenizerFactory;
+import org.apache.lucene.analysis.custom.CustomAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+public class IdentifierAnalyzerTest {
+
+    private static final String ECLI = "ECLI:SK:USSR:2015:1.US.14.2015.1";
+
+
+    @Test
+    public void indexAndQuery() throws IOException {
+        IdentifierAnalyzerConfig config = IdentifierAnalyzerConfig.builder().minGramSize(2).maxGramSize(4).build();
+        try (IdentifierIndexAnalyzer index = new IdentifierIndexAnalyzer(config);
+                IdentifierQueryAnalyzer query = new IdentifierQueryAnalyzer(config)) {
+            index.warmup("id", 100);
+            query.warmup("id", 100);
+            List<String> terms = terms(index, "I. ÚS 22/2015");
+            assertThat(terms, contains("i.us", "i.us22", "i.us22/2015", "us22", "us22/2015", "22/2015"));
+            assertThat(terms, hasItem(terms(query, "ÚS 22").get(0)));
+            assertThat(index.normalize("id", "ÚS").utf8ToString(), is("us"));
+        }
+    }
+
+
+    @Test
+    public void spiLookup() throws IOException {
+        assertThat(TokenizerFactory.lookupClass(PunctationTokenizerFactory.NAME) == PunctationTokenizerFactory.class, is(true));
+        assertThat(TokenFilterFactory.availableTokenFilters().contains(IdentifierNGramFilterFactory.NAME), is(true));
+        try (Analyzer custom = CustomAnalyzer.builder()
+                .withTokenizer(PunctationTokenizerFactory.NAME)
+                .addTokenFilter(IdentifierNGramFilterFactory.NAME, "minGramSize", "9", "maxGramSize", "9")
+                .addTokenFilter("lowercase")
+                .build()) {
+            assertThat(terms(custom, ECLI), contains("ecli:sk:ussr:2015:1.us.14.2015.1"));
+        }
+    }
+
+
+    @Test
+    public void invalidConfig() {
+        // custom term frequencies cannot be indexed with positions required by graph
+        assertThrows(IllegalArgumentException.class,
+                () -> IdentifierAnalyzerConfig.builder().graph(true).lengthWeighting(true).build());
+        Map<String, String> args = new HashMap<>();
+        args.put("graph", "true");
+        args.put("lengthWeighting", "true");
+        assertThrows(IllegalArgumentException.class, () -> new IdentifierNGramFilterFactory(args));
+        // factory validates skip-grams before creating any filter
+        Map<String, String> skipArgs = new HashMap<>();
+        skipArgs.put("maxSkip", "-1");
+        assertThrows(IllegalArgumentException.class, () -> new IdentifierNGramFilterFactory(skipArgs));
+    }
+
+
+    @Test
+    public void reversedWildcard() throws IOException {
+        IdentifierAnalyzerConfig config = IdentifierAnalyzerConfig.builder().minGramSize(2).maxGramSize(3)
+                .emitReversed(true).build();
+        try (Directory dir = new ByteBuffersDirectory();
+                IdentifierIndexAnalyzer analyzer = new IdentifierIndexAnalyzer(config)) {
+            assertThat(terms(analyzer, "ÚS 22/2015"), contains("us22", "\u000122su", "us22/2015", "\u00015102/22su",
+                    "22/2015", "\u00015102/22"));
+            try (IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(analyzer))) {
+                for (String id : new String[]{"I. ÚS 22/2015", "ECLI:SK:USSR:2015:1.US.14.2015.1", "II. ÚS 22/2016"}) {
+                    Document doc = new Document();
+                    doc.add(new TextField("id", id, Field.Store.YES));
+                    writer.addDocument(doc);
+                }
+            }
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                Query suffix = IdentifierWildcardQueries.wildcard(analyzer, "id", "*ÚS 22/2015");
+                assertThat(suffix instanceof PrefixQuery, is(true));
+                assertThat(searcher.count(suffix), is(1));
+                assertThat(searcher.count(IdentifierWildcardQueries.wildcard(analyzer, "id", "*14.2015.1")), is(1));
+                assertThat(searcher.count(IdentifierWildcardQueries.wildcard(analyzer, "id", "*s22")), is(2));
+            }
+        }
+    }
+
+
+    private static List<String> terms(Analyzer analyzer, String text) throws IOException {
+        List<String> result = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream("id", text)) {
+            CharTermAttribute termAtt = stream.getAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                result.add(termAtt.toString());
+            }
+            stream.end();
+        }
+        return result;
+    }
+}
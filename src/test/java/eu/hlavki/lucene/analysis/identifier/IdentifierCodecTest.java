@@ -0,0 +1,60 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import java.io.IOException;
+import java.util.Set;
+import org.apache.lucene.codecs.perfield.PerFieldPostingsFormat;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.junit.jupiter.api.Test;
+
+public class IdentifierCodecTest {
+
+    @Test
+    public void bloomFilteredField() throws IOException {
+        try (Directory dir = new ByteBuffersDirectory();
+                IdentifierIndexAnalyzer analyzer = new IdentifierIndexAnalyzer()) {
+            IndexWriterConfig iwc = new IndexWriterConfig(analyzer).setCodec(new IdentifierCodec(Set.of("id")));
+            try (IndexWriter writer = new IndexWriter(dir, iwc)) {
+                Document doc = new Document();
+                doc.add(new Field("id", "ECLI:SK:USSR:2015:1.US.14.2015.1", IdentifierCodec.DOCS_ONLY_TYPE));
+                doc.add(new StringField("text", "súd", Field.Store.NO));
+                writer.addDocument(doc);
+            }
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                FieldInfos fieldInfos = reader.leaves().get(0).reader().getFieldInfos();
+                assertThat(fieldInfos.fieldInfo("id").getAttribute(PerFieldPostingsFormat.PER_FIELD_FORMAT_KEY),
+                        is("BloomFilter"));
+                assertThat(fieldInfos.fieldInfo("id").getIndexOptions(), is(IndexOptions.DOCS));
+                assertThat(reader.docFreq(new Term("id", "ussr:2015:1")), is(1));
+                assertThat(reader.docFreq(new Term("id", "ussr:2016:1")), is(0));
+                assertThat(reader.docFreq(new Term("text", "súd")), is(1));
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import java.io.IOException;
+import java.util.List;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.junit.jupiter.api.Test;
+
+public class IdentifierHighlighterTest {
+
+    private static final String TEXT = "Sp. zn. I. ÚS 22/2015, ECLI:SK:USSR:2015:1.US.22.2015.1";
+
+
+    @Test
+    public void segmentScan() throws IOException {
+        IdentifierAnalyzerConfig config = IdentifierAnalyzerConfig.builder().minGramSize(1).maxGramSize(4).build();
+        IdentifierHighlighter highlighter = new IdentifierHighlighter(config);
+        int[] spans = highlighter.spans(TEXT, List.of("us22", "22/2015", "2015:1", "missing"));
+        assertThat(IdentifierHighlighter.highlight(TEXT, spans, "[", "]"),
+                is("Sp. zn. I. [ÚS 22/2015], ECLI:SK:USSR:[2015:1].US.22.2015.1"));
+    }
+
+
+    @Test
+    public void termVectorOffsets() throws IOException {
+        IdentifierAnalyzerConfig config = IdentifierAnalyzerConfig.builder().minGramSize(1).maxGramSize(4).build();
+        FieldType type = new FieldType(TextField.TYPE_STORED);
+        type.setStoreTermVectors(true);
+        type.setStoreTermVectorOffsets(true);
+        type.freeze();
+        try (Directory dir = new ByteBuffersDirectory();
+                IdentifierIndexAnalyzer analyzer = new IdentifierIndexAnalyzer(config)) {
+            try (IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(analyzer))) {
+                Document doc = new Document();
+                doc.add(new Field("id", TEXT, type));
+                writer.addDocument(doc);
+            }
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                Terms termVector = reader.getTermVector(0, "id");
+                int[] spans = IdentifierHighlighter.spans(termVector,
+                        List.of(new BytesRef("us22"), new BytesRef("22/2015"), new BytesRef("2015:1")));
+                int[] scanned = new IdentifierHighlighter(config).spans(TEXT, List.of("us22", "22/2015", "2015:1"));
+                assertThat(spans, is(scanned));
+            }
+        }
+    }
+}
@@ -18,10 +18,16 @@ package eu.hlavki.lucene.analysis.identifier;
 import static eu.hlavki.lucene.analysis.identifier.IdentifierFilter.EMPTY_CHAR;
 import java.io.IOException;
 import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.Tokenizer;
@@ -29,9 +35,16 @@ import org.apache.lucene.analysis.core.LowerCaseFilter;
 import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionLengthAttribute;
+import org.apache.lucene.analysis.tokenattributes.TermFrequencyAttribute;
 import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.apache.lucene.util.AttributeFactory;
+import org.apache.lucene.util.ClasspathResourceLoader;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.Matchers.contains;
 import org.junit.jupiter.api.Test;
 
@@ -83,6 +96,380 @@ public class IdentifierNGramFilterTest {
     }
 
 
+    @Test
+    public void skipGrams() {
+        Map<String, String> args = new HashMap<>();
+        args.put("minGramSize", "3");
+        args.put("maxSkip", "1");
+        args.put("maxSkipGrams", "1000");
+        List<Term> terms = analyze("ECLI:SK:USSR:2015:1.US.14.2015.1", new IdentifierNGramFilterFactory(args));
+        assertThat(terms, hasItem(new Term("ecli:sk:2015:1.us.14")));
+        assertThat(terms, hasItem(new Term("ecli:ussr:2015")));
+        assertThat(terms, not(hasItem(new Term("ecli:2015:1"))));
+        assertThat(terms.size(), is(27 + 77));
+
+        args.put("maxSkip", "2");
+        args.put("maxSkipGrams", "10");
+        terms = analyze("ECLI:SK:USSR:2015:1.US.14.2015.1", new IdentifierNGramFilterFactory(args));
+        assertThat(terms, hasItem(new Term("ecli:2015:1")));
+        assertThat(terms.size(), is(27 + 10));
+    }
+
+
+    @Test
+    public void stopSegments() throws IOException {
+        Map<String, String> args = new HashMap<>();
+        args.put("minGramSize", "1");
+        args.put("includeIdentifier", "true");
+        args.put("stopSegments", "stopsegments.txt");
+        args.put("ignoreCase", "true");
+        args.put("minSegmentLength", "2");
+        IdentifierNGramFilterFactory factory = new IdentifierNGramFilterFactory(args);
+        factory.inform(new ClasspathResourceLoader(IdentifierNGramFilterTest.class));
+        assertThat(factory.getStopSegments().size(), is(2));
+        List<Term> terms = analyze("ECLI:SK:USSR:2015:1.US.14.2015.1", factory);
+        for (String term : new String[]{"ecli", "sk", "1", "ecli:sk:ussr", "sk:ussr", "2015:1", "1.us"}) {
+            assertThat(terms, not(hasItem(new Term(term))));
+        }
+        assertThat(terms, hasItem(new Term("ussr")));
+        assertThat(terms, hasItem(new Term("ussr:2015:1.us")));
+        assertThat(terms, hasItem(new Term("ecli:sk:ussr:2015:1.us.14.2015.1")));
+        assertThat(terms.size(), is(16));
+
+        // whole identifier of n-gram length is emitted even if it starts or ends with stop segment
+        assertThat(analyze("ECLI:SK:USSR:2015", factory), hasItem(new Term("ecli:sk:ussr:2015")));
+        assertThat(analyze("USSR:2015:SK", factory), hasItem(new Term("ussr:2015:sk")));
+        factory = new IdentifierNGramFilterFactory(new HashMap<>(Map.of("minGramSize", "1", "includeIdentifier", "true",
+                "stopSegments", "stopsegments.txt", "ignoreCase", "true", "graph", "true")));
+        factory.inform(new ClasspathResourceLoader(IdentifierNGramFilterTest.class));
+        assertThat(analyze("ECLI:SK:USSR:2015", factory).get(0), is(new Term("ecli:sk:ussr:2015")));
+    }
+
+
+    @Test
+    public void identifierTypes() throws IOException {
+        Map<String, String> args = new HashMap<>();
+        args.put("minGramSize", "1");
+        args.put("identifierTypes", "ip, ecli");
+        args.put("ip.pattern", "D\\.D\\.D\\.D");
+        args.put("ip.prefixOnly", "true");
+        args.put("ecli.pattern", "A:A:A:D:.*");
+        args.put("ecli.minGramSize", "2");
+        args.put("ecli.maxGramSize", "3");
+        IdentifierNGramFilterFactory factory = new IdentifierNGramFilterFactory(args);
+        assertThat(analyze("192.168.1.1", factory), contains(new Term("192"), new Term("192.168"),
+                new Term("192.168.1"), new Term("192.168.1.1")));
+        List<Term> terms = analyze("ECLI:SK:USSR:2015:1.US.14.2015.1", factory);
+        assertThat(terms.size(), is(8 + 7));
+        assertThat(terms, hasItem(new Term("ecli:sk:ussr")));
+        assertThat(terms, not(hasItem(new Term("ecli"))));
+        assertThat(analyze("4Tdo 12/2015", factory).size(), is(6));
+
+        PunctationTokenizer tokenizer = new PunctationTokenizer();
+        IdentifierNGramFilter filter = factory.create(tokenizer);
+        tokenizer.setReader(new StringReader("I. ÚS 22/2015"));
+        assertThat(collect(filter).size(), is(10));
+        assertThat(filter.getIdentifierType() == null, is(true));
+        tokenizer.setReader(new StringReader("10.0.0.1"));
+        assertThat(collect(filter).size(), is(4));
+        assertThat(filter.getIdentifierType().getName(), is("ip"));
+    }
+
+
+    @Test
+    public void lengthWeighting() throws IOException {
+        Map<String, String> args = new HashMap<>();
+        args.put("minGramSize", "1");
+        args.put("maxGramSize", "3");
+        args.put("includeIdentifier", "true");
+        args.put("lengthWeighting", "true");
+        TokenStream stream = new IdentifierNGramFilterFactory(args).create(tokenizer("192.168.1.1"));
+        final CharTermAttribute termAtt = stream.getAttribute(CharTermAttribute.class);
+        final TermFrequencyAttribute termFreqAtt = stream.getAttribute(TermFrequencyAttribute.class);
+        final List<String> result = new ArrayList<>();
+        stream.reset();
+        while (stream.incrementToken()) {
+            result.add(termAtt + "=" + termFreqAtt.getTermFrequency());
+        }
+        stream.close();
+        assertThat(result, contains("192=1", "192.168=2", "192.168.1=3", "168=1", "168.1=2", "168.1.1=3",
+                "1=1", "1.1=2", "1=1", "192.168.1.1=4"));
+    }
+
+
+    @Test
+    public void proseDetection() {
+        Map<String, String> args = new HashMap<>();
+        args.put("minGramSize", "2");
+        args.put("maxGramSize", "4");
+        args.put("proseDetection", "true");
+        IdentifierNGramFilterFactory factory = new IdentifierNGramFilterFactory(args);
+        String prose = "Please find attached the decision, number is below.";
+        List<Term> result = analyze(prose, factory);
+        assertThat(result, contains(new Term("please"), new Term("find"), new Term("attached"), new Term("the"),
+                new Term("decision"), new Term("number"), new Term("is"), new Term("below")));
+        assertThat(factory.getProseCount(), is(1L));
+        String ecli = "ECLI:SK:USSR:2015:1.US.14.2015.1";
+        assertThat(analyze(ecli, factory), is(analyze(ecli, 2, 4, false)));
+        assertThat(factory.getProseCount(), is(1L));
+    }
+
+
+    @Test
+    public void graph() throws IOException {
+        Map<String, String> args = new HashMap<>();
+        args.put("minGramSize", "1");
+        args.put("maxGramSize", "2");
+        args.put("includeIdentifier", "true");
+        args.put("graph", "true");
+        TokenStream stream = new IdentifierNGramFilterFactory(args).create(tokenizer("192.168.1"));
+        final CharTermAttribute termAtt = stream.getAttribute(CharTermAttribute.class);
+        final PositionIncrementAttribute posIncAtt = stream.getAttribute(PositionIncrementAttribute.class);
+        final PositionLengthAttribute posLenAtt = stream.getAttribute(PositionLengthAttribute.class);
+        final List<String> result = new ArrayList<>();
+        stream.reset();
+        while (stream.incrementToken()) {
+            result.add(termAtt + "/" + posIncAtt.getPositionIncrement() + "/" + posLenAtt.getPositionLength());
+        }
+        stream.end();
+        stream.close();
+        assertThat(result, contains("192.168.1/1/3", "192/0/1", "192.168/0/2", "168/1/1", "168.1/0/2", "1/1/1"));
+    }
+
+
+    @Test
+    public void attributeFactories() throws IOException {
+        String text = "ECLI:SK:USSR:2015:1.US.14.2015.1";
+        List<Term> expected = analyze(text, 2, 4, true);
+        for (AttributeFactory factory : new AttributeFactory[]{TokenStream.DEFAULT_TOKEN_ATTRIBUTE_FACTORY,
+            AttributeFactory.DEFAULT_ATTRIBUTE_FACTORY, IdentifierAttributeFactory.INSTANCE}) {
+            Tokenizer tokenizer = new PunctationTokenizer(factory);
+            tokenizer.setReader(new StringReader(text));
+            TokenStream stream = new LowerCaseFilter(new IdentifierNGramFilter(tokenizer, 2, 4, true, EMPTY_CHAR));
+            assertThat(collect(stream), is(expected));
+            tokenizer = new PunctationTokenizer(factory);
+            tokenizer.setReader(new StringReader(text));
+            assertThat(collect(new IdentifierFilter(tokenizer)), contains(new Term(text)));
+        }
+    }
+
+
+    @Test
+    public void hash() throws IOException {
+        String text = "(ECLI:SK:USSR:2015:1.US.14.2015.1)";
+        for (char delimiter : new char[]{EMPTY_CHAR, '|'}) {
+            for (AttributeFactory factory : new AttributeFactory[]{TokenStream.DEFAULT_TOKEN_ATTRIBUTE_FACTORY,
+                IdentifierAttributeFactory.INSTANCE}) {
+                Tokenizer tokenizer = new PunctationTokenizer(factory);
+                tokenizer.setReader(new StringReader(text));
+                IdentifierNGramFilter filter = new IdentifierNGramFilter(tokenizer, 1, 4, true, delimiter);
+                filter.setSkipGrams(2, 100);
+                filter.setEmitReversed(true);
+                final CharTermAttribute termAtt = filter.getAttribute(CharTermAttribute.class);
+                final IdentifierHashAttribute hashAtt = filter.getAttribute(IdentifierHashAttribute.class);
+                int count = 0;
+                filter.reset();
+                while (filter.incrementToken()) {
+                    assertThat(termAtt.toString(), hashAtt.getHash(),
+                            is(IdentifierHashAttribute.hash(termAtt.buffer(), 0, termAtt.length())));
+                    count++;
+                }
+                filter.end();
+                filter.close();
+                assertThat(count > 100, is(true));
+            }
+        }
+    }
+
+
+    @Test
+    public void symbolTable() throws Exception {
+        String text = "ECLI:SK:USSR:2015:1.US.14.2015.1";
+        SegmentSymbolTable table = new SegmentSymbolTable(64);
+        for (char delimiter : new char[]{EMPTY_CHAR, '|'}) {
+            List<String> expected = describe(ngrams(text, delimiter, null));
+            assertThat(describe(ngrams(text, delimiter, table)), is(expected));
+        }
+        // repeated segments only, no punctation
+        assertThat(table.size(), is(7));
+        assertThat(table.symbol(0), is("2015"));
+        assertThat(table.symbol(1), is("1"));
+        assertThat(symbol(table, ":"), is(SegmentSymbolAttribute.NO_SYMBOL));
+
+        // one-off segments do not fill bounded table
+        SegmentSymbolTable bounded = new SegmentSymbolTable(2);
+        for (String segment : new String[]{"I", "ÚS", "22", "2015", "2015"}) {
+            char[] chars = segment.toCharArray();
+            bounded.offer(chars, 0, chars.length, IdentifierHashAttribute.hash(chars, 0, chars.length));
+        }
+        assertThat(bounded.size(), is(1));
+        assertThat(symbol(bounded, "2015"), is(0));
+        assertThat(symbol(bounded, "I"), is(SegmentSymbolAttribute.NO_SYMBOL));
+
+        SegmentSymbolTable shared = new SegmentSymbolTable(1000);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(executor.submit(() -> {
+                    int[] ids = new int[500];
+                    for (int i = 0; i < ids.length; i++) {
+                        char[] segment = Integer.toString(i).toCharArray();
+                        ids[i] = shared.add(segment, 0, segment.length,
+                                IdentifierHashAttribute.hash(segment, 0, segment.length));
+                    }
+                    return ids;
+                }));
+            }
+            int[] ids = results.get(0).get();
+            for (Future<int[]> result : results) {
+                assertThat(result.get(), is(ids));
+            }
+            for (int i = 0; i < ids.length; i++) {
+                assertThat(shared.symbol(ids[i]), is(Integer.toString(i)));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+
+    @Test
+    public void bufferShrinkPolicy() throws IOException {
+        BufferShrinkPolicy policy = new BufferShrinkPolicy(512, 4);
+        PunctationTokenizer tokenizer = new PunctationTokenizer();
+        IdentifierNGramFilter filter = new IdentifierNGramFilter(tokenizer, 1, 8, true, EMPTY_CHAR);
+        filter.setBufferShrinkPolicy(policy);
+        StringBuilder spike = new StringBuilder("x".repeat(1000));
+        for (int i = 0; i < 200; i++) {
+            spike.append('.').append(i);
+        }
+        tokenizer.setReader(new StringReader(spike.toString()));
+        assertThat(collect(filter).size() > 1000, is(true));
+        long inflated = tokenizer.ramBytesUsed() + filter.ramBytesUsed();
+
+        tokenizer.setReader(new StringReader("192.168.1.1"));
+        // composition buffer and n-gram queue
+        assertThat(collect(filter).size(), is(10));
+        assertThat(policy.getReleaseCount(), is(2L));
+        assertThat(tokenizer.ramBytesUsed() + filter.ramBytesUsed() < inflated / 2, is(true));
+        tokenizer.setReader(new StringReader("192.168.1.1"));
+        collect(filter);
+        assertThat(policy.getReleaseCount(), is(2L));
+    }
+
+
+    private static int symbol(SegmentSymbolTable table, String segment) {
+        char[] chars = segment.toCharArray();
+        return table.get(chars, 0, chars.length, IdentifierHashAttribute.hash(chars, 0, chars.length));
+    }
+
+
+    private static TokenStream ngrams(String text, char delimiter, SegmentSymbolTable table) {
+        PunctationTokenizer tokenizer = new PunctationTokenizer();
+        tokenizer.setSymbolTable(table);
+        tokenizer.setReader(new StringReader(text));
+        IdentifierNGramFilter filter = new IdentifierNGramFilter(tokenizer, 1, 4, true, delimiter);
+        filter.setSkipGrams(2, 100);
+        return filter;
+    }
+
+
+    /**
+     * Returns terms with offsets and hashes.
+     */
+    private static List<String> describe(TokenStream stream) throws IOException {
+        final IdentifierHashAttribute hashAtt = stream.addAttribute(IdentifierHashAttribute.class);
+        final List<String> result = new ArrayList<>();
+        final CharTermAttribute termAtt = stream.getAttribute(CharTermAttribute.class);
+        final OffsetAttribute offsetAtt = stream.getAttribute(OffsetAttribute.class);
+        stream.reset();
+        while (stream.incrementToken()) {
+            result.add(new Term(termAtt.toString(), offsetAtt.startOffset(), offsetAtt.endOffset()) + "#"
+                    + hashAtt.getHash());
+        }
+        stream.end();
+        stream.close();
+        return result;
+    }
+
+
+    private static Tokenizer tokenizer(String text) {
+        Tokenizer tokenizer = new PunctationTokenizer();
+        tokenizer.setReader(new StringReader(text));
+        return tokenizer;
+    }
+
+
+    @Test
+    public void fanOut() throws IOException {
+        SegmentFanOut fanOut = new SegmentFanOut();
+        TokenStream ngrams = new LowerCaseFilter(new ASCIIFoldingFilter(fanOut.ngrams(3, 8, true, EMPTY_CHAR)));
+        TokenStream identifier = new LowerCaseFilter(new ASCIIFoldingFilter(fanOut.identifier(EMPTY_CHAR)));
+        TokenStream segments = fanOut.segments();
+        for (String text : new String[]{"ECLI:SK:USSR:2015:1.US.14.2015.1", "I. ÚS 22/2015"}) {
+            fanOut.analyze(text);
+            assertThat(collect(ngrams), is(analyze(text, 3, 8, true)));
+            List<Term> unigrams = analyze(text, 1, 1, true);
+            // last unigram with included identifier is the whole identifier
+            assertThat(collect(identifier), contains(unigrams.get(unigrams.size() - 1)));
+            assertThat(collect(segments).size(), is(analyze(text, 1, 1, false).size()));
+        }
+    }
+
+
+    @Test
+    public void fanOutHash() throws IOException {
+        for (SegmentSymbolTable table : new SegmentSymbolTable[]{null, new SegmentSymbolTable(64)}) {
+            PunctationTokenizer source = new PunctationTokenizer();
+            source.setSymbolTable(table);
+            SegmentFanOut fanOut = new SegmentFanOut(source);
+            TokenStream ngrams = fanOut.ngrams(1, 3, true, EMPTY_CHAR);
+            for (String text : new String[]{"192.168.1.1", "ECLI:SK:USSR:2015:1.US.14.2015.1"}) {
+                fanOut.analyze(text);
+                PunctationTokenizer tokenizer = new PunctationTokenizer();
+                tokenizer.setSymbolTable(table);
+                tokenizer.setReader(new StringReader(text));
+                List<String> expected = describe(new IdentifierNGramFilter(tokenizer, 1, 3, true, EMPTY_CHAR));
+                assertThat(describe(ngrams), is(expected));
+            }
+        }
+    }
+
+
+    private static List<Term> collect(TokenStream stream) throws IOException {
+        final List<Term> result = new ArrayList<>();
+        final CharTermAttribute termAtt = stream.getAttribute(CharTermAttribute.class);
+        final OffsetAttribute offsetAtt = stream.getAttribute(OffsetAttribute.class);
+        stream.reset();
+        while (stream.incrementToken()) {
+            result.add(new Term(termAtt.toString(), offsetAtt.startOffset(), offsetAtt.endOffset()));
+        }
+        stream.end();
+        stream.close();
+        return result;
+    }
+
+
+    private static List<Term> analyze(final String text, final IdentifierNGramFilterFactory factory) {
+        Analyzer analyzer = new Analyzer() {
+            @Override
+            protected Analyzer.TokenStreamComponents createComponents(String fieldName) {
+                final Tokenizer src = new PunctationTokenizer();
+                TokenStream tok = factory.create(src);
+                tok = new ASCIIFoldingFilter(tok);
+                tok = new LowerCaseFilter(tok);
+                return new Analyzer.TokenStreamComponents(src, tok);
+            }
+        };
+        try {
+            return collect(analyzer.tokenStream(null, text));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
     private static List<Term> analyze(final String text, final int minNGramSize, final int maxNGramSize,
             final boolean includeIdentifier) {
         return analyze(text, minNGramSize, maxNGramSize, includeIdentifier, EMPTY_CHAR);
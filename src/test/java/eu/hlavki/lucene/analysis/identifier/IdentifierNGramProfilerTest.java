@@ -0,0 +1,63 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.junit.jupiter.api.Test;
+
+public class IdentifierNGramProfilerTest {
+
+    private static final String[] CORPUS = {"ABC-123", "ABC-124", "XY.1.2", "XY.1.3", "Q9"};
+    private static final String[] QUERIES = {"ABC-123", "abc124", "XY.1", "ZZZ"};
+
+
+    @Test
+    public void report() throws IOException {
+        IdentifierNGramProfiler profiler = new IdentifierNGramProfiler(1, 2, 1, 3, true, IdentifierFilter.EMPTY_CHAR);
+        for (String document : CORPUS) {
+            profiler.addDocument(document);
+        }
+        for (String query : QUERIES) {
+            profiler.addQuery(query);
+        }
+        String report = report(profiler, 0.5);
+        assertThat(report, containsString("documents: 5, queries: 4\n"));
+        assertThat(report, containsString("segments per document: {1=1, 2=2, 3=2}\n"));
+        // min max terms/doc unique dict-bytes coverage, throughput is not deterministic
+        assertThat(report, containsString("   1    1         3.00           12             35     0.2500 "));
+        assertThat(report, containsString("   1    2         3.80           15             41     0.5000 "));
+        assertThat(report, containsString("   1    3         3.80           15             41     0.5000 "));
+        assertThat(report, containsString("   2    2         1.80            8             29     0.5000 "));
+        assertThat(report, containsString("   2    3         1.80            8             29     0.5000 "));
+        assertThat(report, containsString("recommended: minGramSize=2 maxGramSize=2\n"));
+
+        assertThat(report(profiler, 0.75), containsString("no configuration reaches coverage 0.7500\n"));
+    }
+
+
+    private static String report(IdentifierNGramProfiler profiler, double coverage) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PrintStream print = new PrintStream(out, true, StandardCharsets.UTF_8)) {
+            profiler.report(print, coverage);
+        }
+        return out.toString(StandardCharsets.UTF_8).replace(System.lineSeparator(), "\n");
+    }
+}
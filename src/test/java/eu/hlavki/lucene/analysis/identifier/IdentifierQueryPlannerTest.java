@@ -0,0 +1,86 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import org.junit.jupiter.api.Test;
+
+public class IdentifierQueryPlannerTest {
+
+    @Test
+    public void rarestCover() throws IOException {
+        assertRarestCover(IdentifierAnalyzerConfig.builder().minGramSize(1).maxGramSize(4).build());
+    }
+
+
+    @Test
+    public void stopSegments() throws IOException {
+        CharArraySet stopSegments = new CharArraySet(Arrays.asList("ecli", "sk"), true);
+        IdentifierAnalyzerConfig config = IdentifierAnalyzerConfig.builder().minGramSize(1).maxGramSize(4)
+                .stopSegments(stopSegments).minSegmentLength(2).build();
+        // configuration keeps its own copy
+        stopSegments.add("ussr");
+        assertThat(config.getStopSegments().contains("USSR"), is(false));
+        assertRarestCover(config);
+    }
+
+
+    private static void assertRarestCover(IdentifierAnalyzerConfig config) throws IOException {
+        try (Directory dir = new ByteBuffersDirectory();
+                IdentifierIndexAnalyzer analyzer = new IdentifierIndexAnalyzer(config)) {
+            try (IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(analyzer))) {
+                for (int i = 0; i < 50; i++) {
+                    Document doc = new Document();
+                    doc.add(new StringField("key", "doc" + i, Field.Store.YES));
+                    doc.add(new TextField("id", "ECLI:SK:USSR:2015:" + i + ".US." + (i % 7) + ".2015.1",
+                            Field.Store.NO));
+                    writer.addDocument(doc);
+                }
+            }
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                IdentifierQueryPlanner planner = new IdentifierQueryPlanner(config);
+                String identifier = "ECLI:SK:USSR:2015:17.US.3.2015.1";
+                List<Term> plan = planner.plan(reader, "id", identifier);
+                assertThat(plan.size(), lessThanOrEqualTo(3));
+                assertThat(reader.docFreq(plan.get(0)), is(1));
+
+                IndexSearcher searcher = new IndexSearcher(reader);
+                TopDocs hits = searcher.search(planner.query(reader, "id", identifier), 10);
+                assertThat(hits.totalHits.value, is(1L));
+                assertThat(searcher.doc(hits.scoreDocs[0].doc).get("key"), is("doc17"));
+                assertThat(planner.plan(reader, "id", "ECLI:CZ:USSR:2015:17").isEmpty(), is(true));
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import org.junit.jupiter.api.Test;
+
+public class IdentifierTokenPublisherTest {
+
+    @Test
+    public void respectsDemand() {
+        IdentifierAnalyzerConfig config = IdentifierAnalyzerConfig.builder().minGramSize(3).maxGramSize(3).build();
+        try (IdentifierIndexAnalyzer analyzer = new IdentifierIndexAnalyzer(config)) {
+            IdentifierTokenPublisher publisher = new IdentifierTokenPublisher(analyzer, "id",
+                    List.of("I. ÚS 22/2015", "org.apache.lucene", "1.2.3.4"));
+            RecordingSubscriber subscriber = new RecordingSubscriber();
+            publisher.subscribe(subscriber);
+            assertThat(subscriber.batches.size(), is(0));
+
+            subscriber.subscription.request(1);
+            assertThat(subscriber.batches, contains("0:i.us22,us22/2015"));
+            assertThat(subscriber.completed, is(false));
+
+            subscriber.subscription.request(5);
+            assertThat(subscriber.batches, contains("0:i.us22,us22/2015", "1:org.apache.lucene", "2:1.2.3,2.3.4"));
+            assertThat(subscriber.completed, is(true));
+        }
+    }
+
+    private static final class RecordingSubscriber implements Flow.Subscriber<TokenBatch> {
+
+        private final List<String> batches = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private boolean completed;
+
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+
+        @Override
+        public void onNext(TokenBatch batch) {
+            StringBuilder sb = new StringBuilder().append(batch.input()).append(':');
+            for (int i = 0; i < batch.size(); i++) {
+                sb.append(i > 0 ? "," : "").append(batch.term(i));
+            }
+            batches.add(sb.toString());
+        }
+
+
+        @Override
+        public void onError(Throwable throwable) {
+            throw new AssertionError(throwable);
+        }
+
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
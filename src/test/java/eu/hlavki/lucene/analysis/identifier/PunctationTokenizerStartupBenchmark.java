@@ -0,0 +1,100 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Startup benchmark of {@link PunctationTokenizer}: latency from tokenizer creation to the first token in a cold
+ * JVM. Every sample runs in a fresh child JVM, so it includes class loading and initialization of scanner
+ * tables. Not a unit test, run it from IDE or with:
+ * <pre>
+ * mvn test-compile
+ * java -cp target/classes:target/test-classes:&lt;lucene jars&gt; \
+ *     eu.hlavki.lucene.analysis.identifier.PunctationTokenizerStartupBenchmark [samples]
+ * </pre>
+ */
+public final class PunctationTokenizerStartupBenchmark {
+
+    private static final String[] MODES = {"reader", "direct-ascii", "direct-unicode"};
+
+
+    private PunctationTokenizerStartupBenchmark() {
+    }
+
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && "probe".equals(args[0])) {
+            probe(args[1]);
+            return;
+        }
+        int samples = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        String classPath = System.getProperty("java.class.path");
+        System.out.printf(Locale.ROOT, "%-16s %12s %12s%n", "mode", "median us", "min us");
+        for (String mode : MODES) {
+            long[] micros = new long[samples];
+            for (int i = 0; i < samples; i++) {
+                Process process = new ProcessBuilder(java, "-cp", classPath,
+                        PunctationTokenizerStartupBenchmark.class.getName(), "probe", mode)
+                        .redirectErrorStream(true).start();
+                try (BufferedReader out = new BufferedReader(
+                        new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                    micros[i] = Long.parseLong(out.readLine().trim());
+                }
+                process.waitFor();
+            }
+            Arrays.sort(micros);
+            System.out.printf(Locale.ROOT, "%-16s %12d %12d%n", mode, micros[samples / 2], micros[0]);
+        }
+    }
+
+
+    /**
+     * Measures first token in this JVM and prints microseconds.
+     */
+    private static void probe(String mode) throws IOException {
+        long start = System.nanoTime();
+        Reader input;
+        switch (mode) {
+            case "reader":
+                input = new StringReader("ECLI:SK:USSR:2015:1.US.14.2015.1");
+                break;
+            case "direct-ascii":
+                input = new CharSequenceReader("ECLI:SK:USSR:2015:1.US.14.2015.1");
+                break;
+            default:
+                input = new CharSequenceReader("I. ÚS 22/2015");
+        }
+        PunctationTokenizer tokenizer = new PunctationTokenizer();
+        tokenizer.setReader(input);
+        tokenizer.reset();
+        if (!tokenizer.incrementToken()) {
+            throw new IllegalStateException("No token");
+        }
+        long elapsed = System.nanoTime() - start;
+        tokenizer.close();
+        System.out.println(elapsed / 1000);
+    }
+}
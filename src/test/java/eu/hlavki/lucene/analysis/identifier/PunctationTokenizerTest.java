@@ -0,0 +1,159 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import org.junit.jupiter.api.Test;
+
+public class PunctationTokenizerTest {
+
+    private static final String ECLI = "ECLI:SK:USSR:2015:1.US.14.2015.1";
+
+
+    @Test
+    public void directInput() throws IOException {
+        PunctationTokenizer tokenizer = new PunctationTokenizer();
+        List<Term> expected = tokenize(tokenizer, new StringReader(ECLI));
+        assertThat(tokenize(tokenizer, new CharSequenceReader(ECLI)), is(expected));
+        assertThat(offsets(tokenize(tokenizer, new CharSequenceReader(ECLI))), is(offsets(expected)));
+
+        char[] buffer = ("xx " + ECLI + " yy").toCharArray();
+        assertThat(offsets(tokenize(tokenizer, new CharSequenceReader(buffer, 3, ECLI.length()))), is(offsets(expected)));
+        // scanner must not write into caller's array when it goes back to reader input
+        assertThat(tokenize(tokenizer, new StringReader("I. ÚS 22/2015")),
+                contains(new Term("I"), new Term("."), new Term("ÚS"), new Term("22"), new Term("/"), new Term("2015")));
+        assertThat(new String(buffer), is("xx " + ECLI + " yy"));
+    }
+
+
+    @Test
+    public void punctationTable() throws IOException {
+        PunctationTokenizerFactory factory = new PunctationTokenizerFactory(new HashMap<>(Map.of(
+                "punctation", PunctationTable.DEFAULT_PUNCTATION.replace("_", "") + "=~", "ignorable", "_")));
+        PunctationTokenizer tokenizer = factory.create(IdentifierAttributeFactory.INSTANCE);
+        assertThat(tokenize(tokenizer, new StringReader("x=1~y_z")), contains(new Term("x"), new Term("="),
+                new Term("1"), new Term("~"), new Term("y"), new Term("z")));
+
+        // custom table scanning loop gives the same tokens as the grammar for its default punctation
+        tokenizer = new PunctationTokenizer(IdentifierAttributeFactory.INSTANCE,
+                PunctationTable.of(PunctationTable.DEFAULT_PUNCTATION + "=", ""));
+        PunctationTokenizer grammar = new PunctationTokenizer();
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 10000) {
+            text.append(" I. ÚS 22/2015 ").append(ECLI).append(" \uD835\uDC00x");
+        }
+        for (String input : new String[]{ECLI, "I. ÚS 22/2015", text.toString()}) {
+            List<Term> expected = tokenize(grammar, new StringReader(input));
+            assertThat(offsets(tokenize(tokenizer, new StringReader(input))), is(offsets(expected)));
+            assertThat(offsets(tokenize(tokenizer, new CharSequenceReader(input))), is(offsets(expected)));
+        }
+    }
+
+
+    @Test
+    public void asciiBypass() throws IOException {
+        // in-place ASCII input skips JFlex scanner, both must give the same tokens, offsets and positions
+        PunctationTokenizer tokenizer = new PunctationTokenizer();
+        tokenizer.setMaxTokenLength(16);
+        Random random = new Random(20221);
+        for (int n = 0; n < 5000; n++) {
+            String text = randomAscii(random, random.nextInt(200), tokenizer.getMaxTokenLength());
+            assertThat(text, positions(tokenizer, new CharSequenceReader(text)),
+                    is(positions(tokenizer, new StringReader(text))));
+        }
+    }
+
+
+    /**
+     * Returns ASCII text of alphanumeric runs, some longer than maximum token length, punctation, whitespace and
+     * control chars.
+     */
+    private static String randomAscii(Random random, int length, int maxTokenLength) {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < length) {
+            int kind = random.nextInt(10);
+            if (kind == 0) {
+                text.append(PunctationTable.DEFAULT_PUNCTATION.charAt(
+                        random.nextInt(PunctationTable.DEFAULT_PUNCTATION.length())));
+            } else if (kind == 1) {
+                text.append(" \t\n\r\f".charAt(random.nextInt(5)));
+            } else if (kind == 2) {
+                text.append((char) random.nextInt(128));
+            } else {
+                int run = kind == 3 ? maxTokenLength - 1 + random.nextInt(4) : 1 + random.nextInt(6);
+                for (int i = 0; i < run; i++) {
+                    text.append("aZ09xY".charAt(random.nextInt(6)));
+                }
+            }
+        }
+        return text.toString();
+    }
+
+
+    private static List<String> positions(PunctationTokenizer tokenizer, Reader reader) throws IOException {
+        final List<String> result = new ArrayList<>();
+        tokenizer.setReader(reader);
+        tokenizer.reset();
+        final CharTermAttribute termAtt = tokenizer.getAttribute(CharTermAttribute.class);
+        final OffsetAttribute offsetAtt = tokenizer.getAttribute(OffsetAttribute.class);
+        final PositionIncrementAttribute posIncrAtt = tokenizer.getAttribute(PositionIncrementAttribute.class);
+        while (tokenizer.incrementToken()) {
+            result.add(new Term(termAtt.toString(), offsetAtt.startOffset(), offsetAtt.endOffset()) + " +"
+                    + posIncrAtt.getPositionIncrement());
+        }
+        tokenizer.end();
+        result.add("end " + offsetAtt.endOffset() + " +" + posIncrAtt.getPositionIncrement());
+        tokenizer.close();
+        return result;
+    }
+
+
+    private static List<String> offsets(List<Term> terms) {
+        List<String> result = new ArrayList<>();
+        for (Term term : terms) {
+            result.add(term.toString());
+        }
+        return result;
+    }
+
+
+    private static List<Term> tokenize(PunctationTokenizer tokenizer, Reader reader) throws IOException {
+        final List<Term> result = new ArrayList<>();
+        tokenizer.setReader(reader);
+        tokenizer.reset();
+        final CharTermAttribute termAtt = tokenizer.getAttribute(CharTermAttribute.class);
+        final OffsetAttribute offsetAtt = tokenizer.getAttribute(OffsetAttribute.class);
+        while (tokenizer.incrementToken()) {
+            result.add(new Term(termAtt.toString(), offsetAtt.startOffset(), offsetAtt.endOffset()));
+        }
+        tokenizer.end();
+        tokenizer.close();
+        return result;
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionLengthAttribute;
+import org.apache.lucene.analysis.tokenattributes.TermFrequencyAttribute;
+import org.apache.lucene.analysis.tokenattributes.TermToBytesRefAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+public class TokenCacheTest {
+
+    private static final String[] INPUTS = {"I. ÚS 22/2015", "ECLI:SK:USSR:2015:1.US.14.2015.1", "192.168.1.1"};
+
+
+    @Test
+    public void replay() throws IOException {
+        IdentifierNGramFilterFactory factory = factory("3");
+        String config = TokenCache.config(new PunctationTokenizerFactory(new HashMap<>()), factory);
+        Analyzer analyzer = analyzer(factory);
+        try (Directory dir = new ByteBuffersDirectory()) {
+            try (TokenCacheWriter writer = new TokenCacheWriter(dir, "tokens.cache", config)) {
+                for (String input : INPUTS) {
+                    writer.add(input, analyzer.tokenStream(null, input));
+                }
+            }
+            try (TokenCacheReader reader = new TokenCacheReader(dir, "tokens.cache", config)) {
+                assertThat(reader.size(), is(INPUTS.length));
+                for (String input : INPUTS) {
+                    assertThat(collect(reader.tokenStream(input)), is(collect(analyzer.tokenStream(null, input))));
+                }
+                assertThat(reader.tokenStream("I. ÚS 23/2015"), nullValue());
+                // one replay stream per thread
+                assertThat(reader.tokenStream(INPUTS[0]), sameInstance(reader.tokenStream(INPUTS[1])));
+            }
+            String changed = TokenCache.config(new PunctationTokenizerFactory(new HashMap<>()), factory("2"));
+            try (TokenCacheReader reader = new TokenCacheReader(dir, "tokens.cache", changed)) {
+                assertThat(reader.isValid(), is(false));
+                assertThat(reader.tokenStream(INPUTS[0]), nullValue());
+            }
+        }
+    }
+
+
+    @Test
+    public void graph() throws IOException {
+        List<String> tokens = roundTrip("graph");
+        // whole ECLI spans all nine segments
+        assertThat(tokens.get(0), is("ECLI:SK:USSR:2015:1.US.14.2015.1 [0, 32] <ALPHANUM> +1 len=9 freq=1 #"
+                + IdentifierHashAttribute.hash("ECLI:SK:USSR:2015:1.US.14.2015.1".toCharArray(), 0, 32)));
+    }
+
+
+    @Test
+    public void lengthWeighting() throws IOException {
+        List<String> tokens = roundTrip("lengthWeighting");
+        // whole ECLI carries frequency of its length, last token before end
+        assertThat(tokens.get(tokens.size() - 2),
+                is("ECLI:SK:USSR:2015:1.US.14.2015.1 [0, 32] <ALPHANUM> +1 len=1 freq=9 #"
+                        + IdentifierHashAttribute.hash("ECLI:SK:USSR:2015:1.US.14.2015.1".toCharArray(), 0, 32)));
+    }
+
+
+    /**
+     * Round trips all inputs through cache with given n-gram filter flag enabled and returns cached tokens of ECLI.
+     */
+    private static List<String> roundTrip(String flag) throws IOException {
+        Map<String, String> args = new HashMap<>();
+        args.put("minGramSize", "2");
+        args.put("maxGramSize", "3");
+        args.put("includeIdentifier", "true");
+        args.put(flag, "true");
+        IdentifierNGramFilterFactory factory = new IdentifierNGramFilterFactory(args);
+        String config = TokenCache.config(new PunctationTokenizerFactory(new HashMap<>()), factory);
+        Analyzer analyzer = analyzer(factory);
+        try (Directory dir = new ByteBuffersDirectory()) {
+            try (TokenCacheWriter writer = new TokenCacheWriter(dir, "tokens.cache", config)) {
+                for (String input : INPUTS) {
+                    writer.add(input, analyzer.tokenStream(null, input));
+                }
+            }
+            try (TokenCacheReader reader = new TokenCacheReader(dir, "tokens.cache", config)) {
+                for (String input : INPUTS) {
+                    List<String> expected = collect(analyzer.tokenStream(null, input));
+                    assertThat(collect(reader.tokenStream(input)), is(expected));
+                }
+                return collect(reader.tokenStream(INPUTS[1]));
+            }
+        }
+    }
+
+
+    @Test
+    public void corrupted() throws IOException {
+        IdentifierNGramFilterFactory factory = factory("3");
+        String config = TokenCache.config(new PunctationTokenizerFactory(new HashMap<>()), factory);
+        Analyzer analyzer = analyzer(factory);
+        try (Directory dir = new ByteBuffersDirectory()) {
+            try (TokenCacheWriter writer = new TokenCacheWriter(dir, "tokens.cache", config)) {
+                for (String input : INPUTS) {
+                    writer.add(input, analyzer.tokenStream(null, input));
+                }
+            }
+            // flip one byte of the first record
+            try (IndexInput in = dir.openInput("tokens.cache", IOContext.DEFAULT);
+                    IndexOutput out = dir.createOutput("corrupted.cache", IOContext.DEFAULT)) {
+                byte[] bytes = new byte[(int) in.length()];
+                in.readBytes(bytes, 0, bytes.length);
+                bytes[bytes.length / 4] ^= 1;
+                out.writeBytes(bytes, bytes.length);
+            }
+            assertThrows(CorruptIndexException.class, () -> new TokenCacheReader(dir, "corrupted.cache", config));
+        }
+    }
+
+
+    private static IdentifierNGramFilterFactory factory(String minGramSize) {
+        Map<String, String> args = new HashMap<>();
+        args.put("minGramSize", minGramSize);
+        args.put("includeIdentifier", "true");
+        return new IdentifierNGramFilterFactory(args);
+    }
+
+
+    private static Analyzer analyzer(IdentifierNGramFilterFactory factory) {
+        return new Analyzer() {
+            @Override
+            protected Analyzer.TokenStreamComponents createComponents(String fieldName) {
+                final Tokenizer src = new PunctationTokenizer();
+                return new Analyzer.TokenStreamComponents(src, factory.create(src));
+            }
+        };
+    }
+
+
+    private static List<String> collect(TokenStream stream) throws IOException {
+        final List<String> result = new ArrayList<>();
+        try (stream) {
+            final TermToBytesRefAttribute termAtt = stream.getAttribute(TermToBytesRefAttribute.class);
+            final OffsetAttribute offsetAtt = stream.getAttribute(OffsetAttribute.class);
+            final TypeAttribute typeAtt = stream.getAttribute(TypeAttribute.class);
+            final IdentifierHashAttribute hashAtt = stream.getAttribute(IdentifierHashAttribute.class);
+            final PositionIncrementAttribute posIncrAtt = stream.getAttribute(PositionIncrementAttribute.class);
+            final PositionLengthAttribute posLenAtt = stream.getAttribute(PositionLengthAttribute.class);
+            final TermFrequencyAttribute termFreqAtt = stream.getAttribute(TermFrequencyAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                result.add(termAtt.getBytesRef().utf8ToString() + " [" + offsetAtt.startOffset() + ", " + offsetAtt.endOffset() + "] " + typeAtt.type()
+                        + " +" + posIncrAtt.getPositionIncrement() + " len=" + posLenAtt.getPositionLength()
+                        + " freq=" + termFreqAtt.getTermFrequency() + " #" + hashAtt.getHash());
+            }
+            stream.end();
+            result.add("end " + offsetAtt.endOffset());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2022 hlavki.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.hlavki.lucene.analysis.identifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares {@link VectorPunctationScanner} with scalar {@link PunctationScanner}. Compiled and run only on Java 17
+ * with <code>jdk.incubator.vector</code> module, see <code>java17</code> profile.
+ */
+public class VectorPunctationScannerTest {
+
+    private static final char[] NON_ASCII = {'č', 'Ú', 'ß', '\u0080', 'ÿ', 'Ā', '０', '￿'};
+    private static final int[] OFFSETS = {0, 1, 7, 8, 15, 16, 17, 31, 32, 33};
+
+
+    @Test
+    public void ranges() {
+        Random random = new Random(42);
+        for (int n = 0; n < 200; n++) {
+            char[] text = randomText(random, random.nextInt(300));
+            for (int from = 0; from <= text.length; from++) {
+                int to = from + random.nextInt(text.length - from + 1);
+                assertThat(VectorPunctationScanner.skipAlphanum(text, from, to),
+                        is(PunctationScanner.skipAlphanum(text, from, to)));
+                assertThat(VectorPunctationScanner.isAscii(text, from, to),
+                        is(PunctationScanner.isAscii(text, from, to)));
+                assertThat(VectorPunctationScanner.skipAlphanum(text, from, text.length),
+                        is(PunctationScanner.skipAlphanum(text, from, text.length)));
+            }
+        }
+    }
+
+
+    @Test
+    public void tokensInPlace() {
+        Random random = new Random(7);
+        for (int n = 0; n < 100; n++) {
+            char[] text = randomText(random, 1 + random.nextInt(10000));
+            for (int offset : OFFSETS) {
+                int from = Math.min(offset, text.length);
+                int to = text.length - random.nextInt(text.length - from + 1);
+                assertThat(tokens(text, from, to, true), is(tokens(text, from, to, false)));
+            }
+        }
+    }
+
+
+    /**
+     * Splits range of text into runs of ASCII letters and digits and single other chars, scanning it in place as
+     * tokenizer does with ASCII input. Range starts at various offsets, so vector lanes are not aligned with runs.
+     */
+    private static List<String> tokens(char[] text, int from, int to, boolean vector) {
+        List<String> result = new ArrayList<>();
+        int i = from;
+        while (i < to) {
+            if (PunctationScanner.classify(text[i] < 128 ? text[i] : 0) == PunctationScanner.ALPHANUM) {
+                int next = vector ? VectorPunctationScanner.skipAlphanum(text, i + 1, to)
+                        : PunctationScanner.skipAlphanum(text, i + 1, to);
+                result.add(new String(text, i, next - i));
+                i = next;
+            } else {
+                result.add(String.valueOf(text[i]));
+                i++;
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns mostly alphanumeric ASCII text with punctation, control chars and occasional non-ASCII chars.
+     */
+    private static char[] randomText(Random random, int length) {
+        char[] text = new char[length];
+        for (int i = 0; i < length; i++) {
+            int kind = random.nextInt(20);
+            if (kind == 0) {
+                text[i] = NON_ASCII[random.nextInt(NON_ASCII.length)];
+            } else if (kind < 4) {
+                text[i] = (char) random.nextInt(128);
+            } else if (kind < 6) {
+                text[i] = PunctationTable.DEFAULT_PUNCTATION.charAt(
+                        random.nextInt(PunctationTable.DEFAULT_PUNCTATION.length()));
+            } else {
+                text[i] = "abcxyzABCXYZ0189".charAt(random.nextInt(16));
+            }
+        }
+        return text;
+    }
+}